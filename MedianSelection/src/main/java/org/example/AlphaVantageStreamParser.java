@@ -0,0 +1,437 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.format.DateTimeParseException;
+
+/**
+ * A pull parser for the intraday responses of the Alpha Vantage API. It reads the JSON document token by token
+ * and hands the close price of each bar of the "Time Series (...)" object to a BarHandler, or all the fields of each bar
+ * to an OhlcvHandler, as soon as it is read, so neither the document nor a tree of it is ever held in memory.
+ * Every other member is skipped.
+ */
+public class AlphaVantageStreamParser {
+
+    /**
+     * Prefix of the key of the time series object
+     */
+    private static final String SERIES_PREFIX = "Time Series";
+
+    /**
+     * Keys of the messages the API answers with instead of a time series: an error, a rate limit note, or information
+     */
+    private static final String[] MESSAGE_KEYS = {"Error Message", "Note", "Information"};
+
+    /**
+     * Keys of the fields of a bar
+     */
+    private static final String OPEN_FIELD = "1. open", HIGH_FIELD = "2. high", LOW_FIELD = "3. low",
+            CLOSE_FIELD = "4. close", VOLUME_FIELD = "5. volume";
+
+    /**
+     * Declare reader
+     */
+    private final Reader reader;
+
+    /**
+     * Buffer of characters read, with the position of the next character and the number of characters available
+     */
+    private final char[] buffer = new char[8192];
+    private int position, limit;
+
+    /**
+     * Number of characters consumed before the buffer
+     */
+    private long offset;
+
+    /**
+     * Reusable builders for member names and values, and for the key of the current bar
+     */
+    private final StringBuilder token = new StringBuilder(32), timestamp = new StringBuilder(19);
+
+    /**
+     * Fields of the current bar
+     */
+    private double open, high, low, close, volume;
+
+    /**
+     * Constructor for AlphaVantageStreamParser class
+     * @param reader the reader of the JSON document
+     */
+    public AlphaVantageStreamParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Parse the document and hand every bar of its time series to the handler, in document order
+     * @param handler the handler of the bars
+     * @return the number of bars parsed
+     * @throws IOException if the document cannot be read or is malformed, or if the API answered
+     * with a message (e.g. an error or a rate limit note) instead of a time series
+     */
+    public int parse(BarHandler handler) throws IOException {
+        return parse(null, handler);
+    }
+
+    /**
+     * Parse the document and hand every bar of its time series to the handler with all its fields, in document order
+     * @param handler the handler of the bars
+     * @return the number of bars parsed
+     * @throws IOException if the document cannot be read or is malformed, or if the API answered
+     * with a message (e.g. an error or a rate limit note) instead of a time series
+     */
+    public int parse(OhlcvHandler handler) throws IOException {
+        return parse(handler, null);
+    }
+
+    /**
+     * Parse the document and hand every bar to the handler that is not null
+     * @param ohlcvHandler the handler of all the fields of the bars
+     * @param barHandler the handler of the close prices of the bars
+     * @return the number of bars parsed
+     * @throws IOException if the document cannot be read or is malformed, or if the API answered with a message
+     */
+    int parse(OhlcvHandler ohlcvHandler, BarHandler barHandler) throws IOException {
+        long start = Metrics.startTimer();
+        long charactersBefore = getCharactersRead();
+        int bars = 0;
+        boolean series = false;
+        String message = null;
+        expect('{');
+        if (!tryConsume('}')) {
+            do {
+                readString(token);
+                expect(':');
+                int next = peek();
+                if (next == '{' && startsWith(token, SERIES_PREFIX)) {
+                    bars += parseSeries(ohlcvHandler, barHandler);
+                    series = true;
+                } else if (next == '"' && message == null && isMessageKey(token)) {
+                    String key = token.toString();
+                    readString(token);
+                    message = key + ": " + token;
+                } else {
+                    skipValue();
+                }
+            } while (tryConsume(','));
+            expect('}');
+        }
+        if (bars == 0 && message != null) {
+            throw new IOException(message);
+        }
+        if (!series) {
+            throw new IOException("No time series in the response");
+        }
+        Metrics.stopTimer(null, MetricKey.PARSE_NANOS, start);
+        Metrics.add(MetricKey.BARS_PARSED, bars);
+        Metrics.add(MetricKey.BYTES_READ, getCharactersRead() - charactersBefore);
+        return bars;
+    }
+
+    /**
+     * Check whether a member holds a message of the API
+     * @param key the name of the member
+     * @return true if it is one of MESSAGE_KEYS
+     */
+    private static boolean isMessageKey(CharSequence key) {
+        for (String messageKey : MESSAGE_KEYS) {
+            if (contentEquals(key, messageKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the number of characters consumed so far
+     * @return the number of characters
+     */
+    public long getCharactersRead() {
+        return offset + position;
+    }
+
+    /**
+     * Parse the time series object
+     * @param ohlcvHandler the handler of all the fields of the bars, or null
+     * @param barHandler the handler of the close prices of the bars, or null
+     * @return the number of bars parsed
+     * @throws IOException if the object is malformed
+     */
+    private int parseSeries(OhlcvHandler ohlcvHandler, BarHandler barHandler) throws IOException {
+        int bars = 0;
+        expect('{');
+        if (tryConsume('}')) {
+            return 0;
+        }
+        do {
+            readString(timestamp);
+            expect(':');
+            long epochMinute;
+            try {
+                epochMinute = EpochMinutes.parse(timestamp);
+            } catch (DateTimeParseException e) {
+                throw new IOException("Illegal timestamp " + timestamp + " at offset " + getCharactersRead(), e);
+            }
+            parseBar(ohlcvHandler != null);
+            if (ohlcvHandler != null) {
+                ohlcvHandler.onBar(epochMinute, open, high, low, close, volume);
+            } else {
+                barHandler.onBar(epochMinute, close);
+            }
+            bars++;
+        } while (tryConsume(','));
+        expect('}');
+        return bars;
+    }
+
+    /**
+     * Parse the object of a bar into the fields of the current bar
+     * @param allFields whether to parse the fields other than the close price, which are skipped otherwise
+     * @throws IOException if the object is malformed or has no close price
+     */
+    private void parseBar(boolean allFields) throws IOException {
+        open = high = low = close = volume = Double.NaN;
+        boolean found = false;
+        expect('{');
+        if (!tryConsume('}')) {
+            do {
+                readString(token);
+                expect(':');
+                if (contentEquals(token, CLOSE_FIELD)) {
+                    close = readNumber("close price");
+                    found = true;
+                } else if (!allFields) {
+                    skipValue();
+                } else if (contentEquals(token, OPEN_FIELD)) {
+                    open = readNumber("open price");
+                } else if (contentEquals(token, HIGH_FIELD)) {
+                    high = readNumber("high price");
+                } else if (contentEquals(token, LOW_FIELD)) {
+                    low = readNumber("low price");
+                } else if (contentEquals(token, VOLUME_FIELD)) {
+                    volume = readNumber("volume");
+                } else {
+                    skipValue();
+                }
+            } while (tryConsume(','));
+            expect('}');
+        }
+        if (!found) {
+            throw new IOException("No close price for bar " + timestamp);
+        }
+    }
+
+    /**
+     * Read a number, quoted or not
+     * @param field the name of the field, for the error message
+     * @return the number
+     * @throws IOException if the value is not a number
+     */
+    private double readNumber(String field) throws IOException {
+        readScalar(token);
+        try {
+            return DecimalParser.parse(token);
+        } catch (NumberFormatException e) {
+            throw new IOException("Illegal " + field + " " + token + " at offset " + getCharactersRead(), e);
+        }
+    }
+
+    /**
+     * Skip the next value, whatever its type
+     * @throws IOException if the value is malformed
+     */
+    private void skipValue() throws IOException {
+        int next = peek();
+        if (next == '{') {
+            expect('{');
+            if (!tryConsume('}')) {
+                do {
+                    readString(token);
+                    expect(':');
+                    skipValue();
+                } while (tryConsume(','));
+                expect('}');
+            }
+        } else if (next == '[') {
+            expect('[');
+            if (!tryConsume(']')) {
+                do {
+                    skipValue();
+                } while (tryConsume(','));
+                expect(']');
+            }
+        } else {
+            readScalar(token);
+        }
+    }
+
+    /**
+     * Read a string, number or literal into the builder
+     * @param builder the builder receiving the characters of the value, without quotes
+     * @throws IOException if the value is malformed
+     */
+    private void readScalar(StringBuilder builder) throws IOException {
+        if (peek() == '"') {
+            readString(builder);
+            return;
+        }
+        builder.setLength(0);
+        while (true) {
+            int c = peekRaw();
+            if (c == -1 || c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) {
+                break;
+            }
+            builder.append(buffer[position++]);
+        }
+        if (builder.length() == 0) {
+            throw error("a value");
+        }
+    }
+
+    /**
+     * Read a string into the builder, decoding escapes
+     * @param builder the builder receiving the characters of the string, without quotes
+     * @throws IOException if the string is malformed
+     */
+    private void readString(StringBuilder builder) throws IOException {
+        expect('"');
+        builder.setLength(0);
+        while (true) {
+            int c = next();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                c = next();
+                switch (c) {
+                    case 'b' -> builder.append('\b');
+                    case 'f' -> builder.append('\f');
+                    case 'n' -> builder.append('\n');
+                    case 'r' -> builder.append('\r');
+                    case 't' -> builder.append('\t');
+                    case 'u' -> {
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(next(), 16);
+                            if (digit < 0) {
+                                throw error("a hexadecimal digit");
+                            }
+                            code = code * 16 + digit;
+                        }
+                        builder.append((char) code);
+                    }
+                    default -> builder.append((char) c);
+                }
+            } else {
+                builder.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * Consume the next non-whitespace character, which has to be the expected one
+     * @param expected the expected character
+     * @throws IOException if the next character is another one
+     */
+    private void expect(char expected) throws IOException {
+        if (peek() != expected) {
+            throw error("'" + expected + "'");
+        }
+        position++;
+    }
+
+    /**
+     * Consume the next non-whitespace character if it is the expected one
+     * @param expected the expected character
+     * @return whether the character was consumed
+     * @throws IOException if the document cannot be read
+     */
+    private boolean tryConsume(char expected) throws IOException {
+        if (peek() == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Skip whitespace and return the next character without consuming it
+     * @return the next character, -1 at the end of the document
+     * @throws IOException if the document cannot be read
+     */
+    private int peek() throws IOException {
+        int c;
+        while ((c = peekRaw()) != -1 && Character.isWhitespace(c)) {
+            position++;
+        }
+        return c;
+    }
+
+    /**
+     * Return the next character without consuming it
+     * @return the next character, -1 at the end of the document
+     * @throws IOException if the document cannot be read
+     */
+    private int peekRaw() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    /**
+     * Consume the next character
+     * @return the next character
+     * @throws IOException if the document ends
+     */
+    private int next() throws IOException {
+        int c = peekRaw();
+        if (c == -1) {
+            throw error("more characters");
+        }
+        position++;
+        return c;
+    }
+
+    /**
+     * Read the next characters into the buffer
+     * @return false at the end of the document
+     * @throws IOException if the document cannot be read
+     */
+    private boolean fill() throws IOException {
+        offset += limit;
+        position = 0;
+        limit = 0;
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    /**
+     * Build the exception of an unexpected character
+     * @param expected what was expected
+     * @return the exception
+     */
+    private IOException error(String expected) {
+        return new IOException("Malformed JSON: expected " + expected + " at offset " + getCharactersRead());
+    }
+
+    private static boolean startsWith(CharSequence sequence, String prefix) {
+        if (sequence.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (sequence.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contentEquals(CharSequence sequence, String string) {
+        return sequence.length() == string.length() && startsWith(sequence, string);
+    }
+}
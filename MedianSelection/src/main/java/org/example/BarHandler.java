@@ -0,0 +1,15 @@
+package org.example;
+
+/**
+ * Receive the bars of a time series one at a time, as they are read
+ */
+@FunctionalInterface
+public interface BarHandler {
+
+    /**
+     * Handle one bar
+     * @param epochMinute the time of the bar, in minutes since 1970-01-01T00:00 local time (see EpochMinutes)
+     * @param close the closing price of the bar
+     */
+    void onBar(long epochMinute, double close);
+}
@@ -0,0 +1,201 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * A growable series of bars held as two primitive columns, the epoch minutes and the close prices.
+ * It collects bars as a BarHandler and hands them back as a DataSource.
+ */
+public class BarSeries implements BarHandler, DataSource {
+
+    /**
+     * Default capacity of the columns
+     */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Declare epochMinutes, closes
+     */
+    private long[] epochMinutes;
+    private double[] closes;
+
+    /**
+     * Number of bars
+     */
+    private int size;
+
+    /**
+     * Construct an empty series
+     */
+    public BarSeries() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construct an empty series with the given initial capacity
+     * @param initialCapacity the initial length of the columns
+     */
+    public BarSeries(int initialCapacity) {
+        epochMinutes = new long[Math.max(1, initialCapacity)];
+        closes = new double[epochMinutes.length];
+    }
+
+    /**
+     * Construct a series holding the given columns, which are not copied
+     * @param epochMinutes the epoch minutes of the bars
+     * @param closes the close prices of the bars
+     * @param size the number of bars
+     */
+    public BarSeries(long[] epochMinutes, double[] closes, int size) {
+        if (size > epochMinutes.length || size > closes.length) {
+            throw new IllegalArgumentException("Size exceeds the columns");
+        }
+        this.epochMinutes = epochMinutes;
+        this.closes = closes;
+        this.size = size;
+    }
+
+    /**
+     * Append a bar
+     * @param epochMinute the time of the bar
+     * @param close the closing price of the bar
+     */
+    @Override
+    public void onBar(long epochMinute, double close) {
+        if (size == epochMinutes.length) {
+            epochMinutes = Arrays.copyOf(epochMinutes, size << 1);
+            closes = Arrays.copyOf(closes, size << 1);
+            Metrics.add(MetricKey.ARRAY_GROWTHS, 2);
+            Metrics.add(MetricKey.BYTES_ALLOCATED, (long) epochMinutes.length * (Long.BYTES + Double.BYTES));
+        }
+        epochMinutes[size] = epochMinute;
+        closes[size] = close;
+        size++;
+    }
+
+    /**
+     * Hand the bars to the handler in the order of the series
+     * @param handler the handler of the bars
+     */
+    @Override
+    public void read(BarHandler handler) {
+        for (int i = 0; i < size; i++) {
+            handler.onBar(epochMinutes[i], closes[i]);
+        }
+    }
+
+    /**
+     * Sort the bars by time, keeping the order of bars with the same time
+     */
+    public void sort() {
+        int[] order = chronologicalOrder(epochMinutes, size);
+        if (order == null) {
+            return;
+        }
+        long[] sortedMinutes = new long[epochMinutes.length];
+        double[] sortedCloses = new double[closes.length];
+        for (int i = 0; i < size; i++) {
+            sortedMinutes[i] = epochMinutes[order[i]];
+            sortedCloses[i] = closes[order[i]];
+        }
+        epochMinutes = sortedMinutes;
+        closes = sortedCloses;
+    }
+
+    /**
+     * Compute the stable chronological order of bars
+     * @param epochMinutes the times of the bars
+     * @param size the number of bars
+     * @return the indices of the bars in chronological order, or null if they already are
+     */
+    static int[] chronologicalOrder(long[] epochMinutes, int size) {
+        boolean ascending = true, descending = true;
+        for (int i = 1; i < size; i++) {
+            ascending &= epochMinutes[i - 1] <= epochMinutes[i];
+            descending &= epochMinutes[i - 1] > epochMinutes[i];
+        }
+        if (ascending) {
+            return null;
+        }
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            // The API returns the most recent bar first
+            order[i] = descending ? size - 1 - i : i;
+        }
+        if (!descending) {
+            mergeSort(epochMinutes, order, new int[size], 0, size);
+        }
+        return order;
+    }
+
+    /**
+     * Return the number of bars
+     * @return the number of bars
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the time of a bar
+     * @param i the index of the bar
+     * @return the epoch minute of the bar
+     */
+    public long getEpochMinute(int i) {
+        checkIndex(i);
+        return epochMinutes[i];
+    }
+
+    /**
+     * Return the close price of a bar
+     * @param i the index of the bar
+     * @return the close price of the bar
+     */
+    public double getClose(int i) {
+        checkIndex(i);
+        return closes[i];
+    }
+
+    /**
+     * Return the column of epoch minutes, whose first size() elements are the bars
+     * @return the backing array of epoch minutes
+     */
+    public long[] epochMinutes() {
+        return epochMinutes;
+    }
+
+    /**
+     * Return the column of close prices, whose first size() elements are the bars
+     * @return the backing array of close prices
+     */
+    public double[] closes() {
+        return closes;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for size " + size);
+        }
+    }
+
+    /**
+     * Stable merge sort of a range of bar indices by time
+     */
+    private static void mergeSort(long[] epochMinutes, int[] order, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(epochMinutes, order, buffer, from, middle);
+        mergeSort(epochMinutes, order, buffer, middle, to);
+        System.arraycopy(order, from, buffer, from, to - from);
+        int i = from, j = middle;
+        for (int k = from; k < to; k++) {
+            if (j == to || (i < middle && epochMinutes[buffer[i]] <= epochMinutes[buffer[j]])) {
+                order[k] = buffer[i++];
+            } else {
+                order[k] = buffer[j++];
+            }
+        }
+    }
+}
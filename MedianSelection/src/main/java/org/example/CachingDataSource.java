@@ -0,0 +1,134 @@
+package org.example;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * A data source served from a SeriesCache. A cached series younger than the time to live is served as is.
+ * An older one is refreshed through a cheaper source, e.g. a compact API call covering only the last bars:
+ * the cached bars before the first refreshed bar, which belong to closed periods that never change,
+ * are kept and the refreshed bars replace the rest. A missing series, or one so old that the refreshed bars
+ * do not reach back to its last bar, is fetched in full.
+ * Bars are fetched and cached with all their fields, so reads of close prices and of whole bars share the cache;
+ * a series cached with close prices only is fetched in full again once whole bars are read or it is stale.
+ */
+public class CachingDataSource implements DataSource {
+
+    private final SeriesCache cache;
+
+    private final String key;
+
+    /**
+     * Sources of the whole series and of its last bars
+     */
+    private final DataSource source, refreshSource;
+
+    /**
+     * Age after which a cached series is refreshed
+     */
+    private final Duration timeToLive;
+
+    private final Clock clock;
+
+    /**
+     * Constructor for CachingDataSource class
+     * @param cache the cache
+     * @param key the key of the series in the cache
+     * @param source the source of the whole series
+     * @param refreshSource the source of the last bars of the series, or null to fetch the whole series again
+     * @param timeToLive the age after which a cached series is refreshed
+     * @param clock the source of the current time
+     */
+    public CachingDataSource(SeriesCache cache, String key, DataSource source, DataSource refreshSource, Duration timeToLive, Clock clock) {
+        this.cache = cache;
+        this.key = key;
+        this.source = source;
+        this.refreshSource = refreshSource;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    /**
+     * Hand the bars of the series to the handler in chronological order, from the cache when possible
+     * @param handler the handler of the bars
+     * @throws IOException if the series has to be fetched and cannot be, or cannot be cached
+     */
+    @Override
+    public void read(BarHandler handler) throws IOException {
+        load(false).read(handler);
+    }
+
+    /**
+     * Hand the bars of the series with all their fields to the handler in chronological order, from the cache when possible
+     * @param handler the handler of the bars
+     * @throws IOException if the series has to be fetched and cannot be, or cannot be cached
+     */
+    @Override
+    public void read(OhlcvHandler handler) throws IOException {
+        load(true).read(handler);
+    }
+
+    /**
+     * Return the cached series if it is fresh, else refresh or fetch it and cache it
+     * @param allFields whether the open, high and low prices and the volumes are needed
+     * @return the bars in chronological order
+     * @throws IOException if the series has to be fetched and cannot be, or cannot be cached
+     */
+    private DataSource load(boolean allFields) throws IOException {
+        long now = clock.millis();
+        SeriesCache.Entry entry = cache.load(key);
+        if (entry != null) {
+            boolean stale = now - entry.getFetchedAt() >= timeToLive.toMillis();
+            if (!stale && (!allFields || entry.getFile().hasAllFields())) {
+                return entry.getFile();
+            }
+            if (!entry.getFile().hasAllFields()) {
+                // Cached with close prices only, which a refresh cannot complete
+                entry = null;
+            }
+        }
+        OhlcvSeries series = entry != null && refreshSource != null ? refresh(entry.getOhlcvSeries()) : fetch();
+        cache.store(key, series, now);
+        return series;
+    }
+
+    /**
+     * Fetch the whole series
+     * @return the series, in chronological order
+     * @throws IOException if the series cannot be fetched
+     */
+    private OhlcvSeries fetch() throws IOException {
+        OhlcvSeries series = new OhlcvSeries();
+        source.read(series);
+        series.sort();
+        return series;
+    }
+
+    /**
+     * Fetch the last bars and merge them into the cached series, or fetch the whole series if the last bars
+     * start after the last cached bar, since the bars in between would be missing
+     * @param cached the cached series, in chronological order
+     * @return the merged series, in chronological order
+     * @throws IOException if the bars cannot be fetched
+     */
+    private OhlcvSeries refresh(OhlcvSeries cached) throws IOException {
+        OhlcvSeries fresh = new OhlcvSeries();
+        refreshSource.read(fresh);
+        fresh.sort();
+        if (fresh.size() == 0) {
+            return cached;
+        }
+        long[] cachedMinutes = cached.epochMinutes();
+        long firstFresh = fresh.epochMinutes()[0];
+        if (cached.size() == 0 || firstFresh > cachedMinutes[cached.size() - 1]) {
+            return fetch();
+        }
+        OhlcvSeries merged = new OhlcvSeries(cached.size() + fresh.size());
+        for (int i = 0; i < cached.size() && cachedMinutes[i] < firstFresh; i++) {
+            merged.onBar(cachedMinutes[i], cached.opens()[i], cached.highs()[i], cached.lows()[i], cached.closes()[i], cached.volumes()[i]);
+        }
+        fresh.read(merged);
+        return merged;
+    }
+}
@@ -0,0 +1,216 @@
+package org.example;
+
+import org.jfree.chart.ChartUtils;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+/**
+ * Save the charts of many series to files concurrently, without a display, e.g. for the nightly reports of hundreds
+ * of symbols. Each worker thread keeps its own template chart, whose plot, axes and renderer are built once and whose
+ * data is replaced for every series, and for PNG its own image, which is drawn over for every series.
+ * The run reports its throughput in charts per second.
+ */
+public class ChartBatchRenderer {
+
+    /**
+     * Logger of the throughput of the runs, at INFO level
+     */
+    private static final Logger LOGGER = Logger.getLogger(ChartBatchRenderer.class.getName());
+
+    /**
+     * Directory of the files
+     */
+    private final Path directory;
+
+    /**
+     * Declare format
+     */
+    private final DrawChart.Format format;
+
+    /**
+     * Size of the charts, in pixels
+     */
+    private final int width, height;
+
+    /**
+     * Labels of the axes
+     */
+    private final String xLabel, yLabel;
+
+    /**
+     * Template chart and image of each worker thread
+     */
+    private final ThreadLocal<Template> templates = ThreadLocal.withInitial(this::newTemplate);
+
+    /**
+     * Constructor for ChartBatchRenderer class
+     * @param directory the directory of the files, created if needed
+     * @param format the format of the files
+     * @param width the width of the charts, in pixels
+     * @param height the height of the charts, in pixels
+     * @param xLabel the label for the X-axis.
+     * @param yLabel the label for the Y-axis.
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public ChartBatchRenderer(Path directory, DrawChart.Format format, int width, int height, String xLabel, String yLabel) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Illegal size: " + width + "x" + height);
+        }
+        this.directory = directory;
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.xLabel = xLabel;
+        this.yLabel = yLabel;
+    }
+
+    /**
+     * Save one chart per series, as symbol.png or symbol.svg in the directory, rendering them concurrently
+     * @param series the map of symbols and their maps of local dates and corresponding values
+     * @param executor the executor running one task per chart, e.g. a fixed pool of one thread per core
+     * @return the files written, the errors of the charts that could not be written and the throughput
+     * @throws IOException if the directory cannot be created
+     */
+    public Result render(Map<String, Map<LocalDate, Double>> series, Executor executor) throws IOException {
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+        Map<String, CompletableFuture<Path>> futures = new TreeMap<>();
+        series.forEach((symbol, data) -> futures.put(symbol, CompletableFuture.supplyAsync(() -> render(symbol, data), executor)));
+        Result result = new Result();
+        futures.forEach((symbol, future) -> {
+            try {
+                result.files.put(symbol, future.join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+                result.failures.put(symbol, cause);
+            }
+        });
+        result.elapsed = Duration.ofNanos(System.nanoTime() - start);
+        LOGGER.info(result::toString);
+        return result;
+    }
+
+    /**
+     * Save the chart of one series with the template of the current thread
+     * @param symbol the symbol, which names the file and the chart
+     * @param data the map of local dates and corresponding values
+     * @return the path of the file
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    private Path render(String symbol, Map<LocalDate, Double> data) {
+        long start = Metrics.startTimer();
+        Path file = directory.resolve(symbol + "." + format.getExtension());
+        Template template = templates.get();
+        template.drawChart.setData(symbol, data, symbol);
+        try {
+            if (format == DrawChart.Format.PNG) {
+                Graphics2D g2 = template.image.createGraphics();
+                try {
+                    template.drawChart.getChart().draw(g2, new Rectangle(width, height));
+                } finally {
+                    g2.dispose();
+                }
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    ChartUtils.writeBufferedImageAsPNG(out, template.image);
+                }
+            } else {
+                template.drawChart.save(file, format, width, height);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Metrics.stopTimer(MetricKey.CHARTS_RENDERED, MetricKey.RENDER_NANOS, start);
+        return file;
+    }
+
+    /**
+     * Build the template of a worker thread
+     * @return a chart without data, down-sampled to the width, and an image of the size of the charts
+     */
+    private Template newTemplate() {
+        DrawChart drawChart = new DrawChart("", Map.of(), "", xLabel, yLabel);
+        drawChart.setMaxPoints(Math.max(3, width));
+        BufferedImage image = format == DrawChart.Format.PNG ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB) : null;
+        return new Template(drawChart, image);
+    }
+
+    /**
+     * The chart and image reused by a worker thread
+     */
+    private static class Template {
+
+        private final DrawChart drawChart;
+
+        private final BufferedImage image;
+
+        Template(DrawChart drawChart, BufferedImage image) {
+            this.drawChart = drawChart;
+            this.image = image;
+        }
+    }
+
+    /**
+     * The result of rendering many charts
+     */
+    public static class Result {
+
+        private final Map<String, Path> files = new TreeMap<>();
+
+        private final Map<String, Throwable> failures = new TreeMap<>();
+
+        private Duration elapsed;
+
+        /**
+         * Return the files written
+         * @return the map of symbols and the paths of their charts
+         */
+        public Map<String, Path> getFiles() {
+            return files;
+        }
+
+        /**
+         * Return the errors of the charts that could not be written
+         * @return the map of symbols and their errors
+         */
+        public Map<String, Throwable> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Return the wall-clock time of the run
+         * @return the duration from the submission of the first chart to the completion of the last one
+         */
+        public Duration getElapsed() {
+            return elapsed;
+        }
+
+        /**
+         * Return the throughput of the run
+         * @return the number of charts written per second of wall-clock time
+         */
+        public double getChartsPerSecond() {
+            return files.size() * 1e9 / Math.max(1, elapsed.toNanos());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d charts in %d ms, %.1f charts/s, %d failures",
+                    files.size(), elapsed.toMillis(), getChartsPerSecond(), failures.size());
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe MedianSelection for several producer threads adding values at once.
+ * Each producer appends to one of several striped buffers chosen by its thread, so producers on different
+ * stripes never contend. A full buffer is drained into the MedianSelection only if its lock is free;
+ * a query takes that lock and then the lock of every stripe, drains all the buffers and answers from the
+ * MedianSelection, so it sees exactly the values of the adds that completed before it.
+ * A stripe that could not be drained for MAX_BUFFERED values makes its producer wait for the lock of the
+ * MedianSelection, so each stripe buffers at most MAX_BUFFERED values plus one per other thread adding
+ * to it at that moment, whatever the rate of the producers.
+ */
+public class ConcurrentMedianSelection implements QuantileAccumulator {
+
+    /**
+     * Number of buffered values after which a producer tries to drain its stripe
+     */
+    private static final int DRAIN_THRESHOLD = 256;
+
+    /**
+     * Number of buffered values after which a producer waits to drain its stripe
+     */
+    private static final int MAX_BUFFERED = 4 * DRAIN_THRESHOLD;
+
+    /**
+     * A buffer of values with its lock
+     */
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private double[] buffer = new double[DRAIN_THRESHOLD];
+
+        private int size;
+    }
+
+    /**
+     * Declare stripes, whose number is a power of two
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * Declare selection, guarded by selectionLock
+     */
+    private final MedianSelection selection = new MedianSelection();
+
+    private final ReentrantLock selectionLock = new ReentrantLock();
+
+    /**
+     * Constructor for ConcurrentMedianSelection class with one stripe per available processor
+     */
+    public ConcurrentMedianSelection() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for ConcurrentMedianSelection class
+     * @param stripes the number of buffers, rounded up to a power of two
+     * @throws IllegalArgumentException if stripes is not positive
+     */
+    public ConcurrentMedianSelection(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Number of stripes must be positive: " + stripes);
+        }
+        this.stripes = new Stripe[stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Add a new number from any thread. It waits for the selection only once its stripe holds MAX_BUFFERED values.
+     * @param num The number to be added
+     */
+    @Override
+    public void add(double num) {
+        Stripe stripe = stripes[stripeIndex()];
+        boolean full;
+        stripe.lock.lock();
+        try {
+            if (stripe.size == stripe.buffer.length) {
+                stripe.buffer = Arrays.copyOf(stripe.buffer, stripe.size << 1);
+            }
+            stripe.buffer[stripe.size++] = num;
+            // Keep buffering while the selection is busy, up to MAX_BUFFERED values
+            if (stripe.size >= DRAIN_THRESHOLD && selectionLock.tryLock()) {
+                try {
+                    drain(stripe);
+                } finally {
+                    selectionLock.unlock();
+                }
+            }
+            full = stripe.size >= MAX_BUFFERED;
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (full) {
+            // Take the locks in the order of the queries, the selection first, so as not to deadlock with drainAll
+            selectionLock.lock();
+            try {
+                stripe.lock.lock();
+                try {
+                    drain(stripe);
+                } finally {
+                    stripe.lock.unlock();
+                }
+            } finally {
+                selectionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Get the quantile of all the numbers added by the adds that completed before the call, exactly
+     * @param quantile the quantile, between 0 and 1
+     * @return the value at the quantile
+     */
+    @Override
+    public double getQuantile(double quantile) {
+        selectionLock.lock();
+        try {
+            drainAll();
+            return selection.getQuantile(quantile);
+        } finally {
+            selectionLock.unlock();
+        }
+    }
+
+    /**
+     * Get the median of all the numbers added by the adds that completed before the call
+     * @return the median
+     */
+    @Override
+    public double getMedian() {
+        selectionLock.lock();
+        try {
+            drainAll();
+            return selection.getMedian();
+        } finally {
+            selectionLock.unlock();
+        }
+    }
+
+    /**
+     * Return the number of numbers added by the adds that completed before the call
+     * @return the number of numbers
+     */
+    @Override
+    public long getCount() {
+        selectionLock.lock();
+        try {
+            drainAll();
+            return selection.getCount();
+        } finally {
+            selectionLock.unlock();
+        }
+    }
+
+    /**
+     * The quantiles are exact
+     * @return 0
+     */
+    @Override
+    public double getRankError() {
+        return 0;
+    }
+
+    /**
+     * Drain every stripe into the selection, holding the locks of all the stripes together so that
+     * no add can complete in the middle of the drain. The caller holds the lock of the selection.
+     */
+    private void drainAll() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+        try {
+            for (Stripe stripe : stripes) {
+                drain(stripe);
+            }
+        } finally {
+            for (Stripe stripe : stripes) {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Move the values of a stripe into the selection in bulk, so that the lock of the selection is held as briefly as
+     * possible. The caller holds the locks of the stripe and the selection.
+     * @param stripe the stripe
+     */
+    private void drain(Stripe stripe) {
+        if (stripe.size > 0) {
+            selection.addAll(Arrays.copyOf(stripe.buffer, stripe.size));
+        }
+        stripe.size = 0;
+        if (stripe.buffer.length > DRAIN_THRESHOLD) {
+            stripe.buffer = new double[DRAIN_THRESHOLD];
+        }
+    }
+
+    /**
+     * Return the stripe of the current thread, spreading the thread ids over the stripes
+     * @return the index of the stripe
+     */
+    private int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+}
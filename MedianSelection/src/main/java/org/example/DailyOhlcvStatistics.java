@@ -0,0 +1,167 @@
+package org.example;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Daily statistics of an OHLCV series, held as one primitive column per statistic with one row per date
+ * in ascending order: the median close price, the volume-weighted median close price, the median true range
+ * of the bars, and the highest and lowest prices. A NaN field of a bar makes the statistics using it NaN.
+ */
+public class DailyOhlcvStatistics {
+
+    /**
+     * Declare epochDays, one per row
+     */
+    private final long[] epochDays;
+
+    /**
+     * Declare the columns of statistics
+     */
+    private final double[] medianCloses, volumeWeightedMedians, medianTrueRanges, highs, lows;
+
+    private DailyOhlcvStatistics(int capacity) {
+        epochDays = new long[capacity];
+        medianCloses = new double[capacity];
+        volumeWeightedMedians = new double[capacity];
+        medianTrueRanges = new double[capacity];
+        highs = new double[capacity];
+        lows = new double[capacity];
+    }
+
+    /**
+     * Compute the daily statistics of a series, sorting it by time first
+     * @param series the bars, parsed once
+     * @return the statistics of each date of the series
+     */
+    public static DailyOhlcvStatistics of(OhlcvSeries series) {
+        series.sort();
+        int n = series.size();
+        long[] epochMinutes = series.epochMinutes();
+        double[] highs = series.highs(), lows = series.lows(), closes = series.closes(), volumes = series.volumes();
+
+        int days = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || EpochMinutes.toEpochDay(epochMinutes[i]) != EpochMinutes.toEpochDay(epochMinutes[i - 1])) {
+                days++;
+            }
+        }
+        DailyOhlcvStatistics statistics = new DailyOhlcvStatistics(days);
+        double[] values = new double[n], weights = new double[n], trueRanges = new double[n];
+        for (int i = 0; i < n; i++) {
+            double range = highs[i] - lows[i];
+            trueRanges[i] = i == 0 ? range
+                    : Math.max(range, Math.max(Math.abs(highs[i] - closes[i - 1]), Math.abs(lows[i] - closes[i - 1])));
+        }
+
+        int row = 0;
+        for (int from = 0, to; from < n; from = to) {
+            long epochDay = EpochMinutes.toEpochDay(epochMinutes[from]);
+            double high = highs[from], low = lows[from];
+            for (to = from + 1; to < n && EpochMinutes.toEpochDay(epochMinutes[to]) == epochDay; to++) {
+                high = Math.max(high, highs[to]);
+                low = Math.min(low, lows[to]);
+            }
+            int length = to - from;
+            statistics.epochDays[row] = epochDay;
+            statistics.highs[row] = high;
+            statistics.lows[row] = low;
+            System.arraycopy(closes, from, values, 0, length);
+            statistics.medianCloses[row] = IntroSelect.median(values, 0, length);
+            System.arraycopy(closes, from, values, 0, length);
+            System.arraycopy(volumes, from, weights, 0, length);
+            statistics.volumeWeightedMedians[row] = weightedMedian(values, weights, length);
+            System.arraycopy(trueRanges, from, values, 0, length);
+            statistics.medianTrueRanges[row] = IntroSelect.median(values, 0, length);
+            row++;
+        }
+        return statistics;
+    }
+
+    /**
+     * Compute the volume-weighted median of close prices by weighted selection
+     * @param values the close prices, reordered in place
+     * @param weights the volumes, reordered in place
+     * @param n the number of bars
+     * @return the weighted median, NaN if a volume is missing or no volume was traded
+     */
+    private static double weightedMedian(double[] values, double[] weights, int n) {
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            total += weights[i];
+        }
+        return total > 0 ? IntroSelect.weightedMedian(values, weights, 0, n) : Double.NaN;
+    }
+
+    /**
+     * Return the number of dates
+     * @return the number of rows
+     */
+    public int size() {
+        return epochDays.length;
+    }
+
+    /**
+     * Return the date of a row
+     * @param i the index of the row
+     * @return the date
+     */
+    public LocalDate getDate(int i) {
+        return LocalDate.ofEpochDay(epochDays[i]);
+    }
+
+    /**
+     * Return the row of a date
+     * @param date the date
+     * @return the index of the row, or a negative number if the series has no bar on that date
+     */
+    public int indexOf(LocalDate date) {
+        return Arrays.binarySearch(epochDays, date.toEpochDay());
+    }
+
+    /**
+     * Return the median close price of a date
+     * @param i the index of the row
+     * @return the median close price
+     */
+    public double getMedianClose(int i) {
+        return medianCloses[i];
+    }
+
+    /**
+     * Return the volume-weighted median close price of a date
+     * @param i the index of the row
+     * @return the volume-weighted median close price, NaN if no volume was traded
+     */
+    public double getVolumeWeightedMedian(int i) {
+        return volumeWeightedMedians[i];
+    }
+
+    /**
+     * Return the median true range of the bars of a date, the true range of a bar being the largest of its range
+     * and the distances from its high and low prices to the close price of the previous bar
+     * @param i the index of the row
+     * @return the median true range
+     */
+    public double getMedianTrueRange(int i) {
+        return medianTrueRanges[i];
+    }
+
+    /**
+     * Return the highest price of a date
+     * @param i the index of the row
+     * @return the highest price
+     */
+    public double getHigh(int i) {
+        return highs[i];
+    }
+
+    /**
+     * Return the lowest price of a date
+     * @param i the index of the row
+     * @return the lowest price
+     */
+    public double getLow(int i) {
+        return lows[i];
+    }
+}
@@ -0,0 +1,27 @@
+package org.example;
+
+import java.io.IOException;
+
+/**
+ * A source of the bars of a price series, such as the Alpha Vantage API, a local file or a replay of recorded bars
+ */
+@FunctionalInterface
+public interface DataSource {
+
+    /**
+     * Read the bars of the series and hand each one to the handler as soon as it is read
+     * @param handler the handler of the bars
+     * @throws IOException if the bars cannot be read
+     */
+    void read(BarHandler handler) throws IOException;
+
+    /**
+     * Read the bars of the series with all their fields and hand each one to the handler as soon as it is read.
+     * A source that only provides close prices hands NaN for the open, high and low prices and the volume.
+     * @param handler the handler of the bars
+     * @throws IOException if the bars cannot be read
+     */
+    default void read(OhlcvHandler handler) throws IOException {
+        read((epochMinute, close) -> handler.onBar(epochMinute, Double.NaN, Double.NaN, Double.NaN, close, Double.NaN));
+    }
+}
@@ -5,15 +5,24 @@ import org.json.JSONObject;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.HttpURLConnection;
-import java.net.URL;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
 
 
 /**
@@ -23,6 +32,11 @@ import java.util.Map;
  */
 public class DataStreamHandle {
 
+    /**
+     * Logger of the responses and results, at FINEST and FINE levels
+     */
+    private static final Logger LOGGER = Logger.getLogger(DataStreamHandle.class.getName());
+
     /**
      * These parameters to be used for the API call.
      */
@@ -42,19 +56,46 @@ public class DataStreamHandle {
      * */
     private Map<String, String> params = new HashMap<>();
 
+    /**
+     * Source of the bars, the API call unless another source is given
+     */
+    private DataSource dataSource;
+
+    /**
+     * Parameters of the series, null when the bars come from another source than the API
+     */
+    private String symbolName;
+    private Interval interval;
+    private OutputSize outputSize;
+
+    /**
+     * Daily medians kept up to date by refreshMedian()
+     */
+    private IncrementalMedianStore medianStore;
+
     /**
      * Time interval between two consecutive data points in the time series
      * */
     public static enum Interval {
-        ONE_MIN("1min"),
-        FIVE_MIN("5min") ,
-        FIFTEEN_MIN("15min"),
-        THIRTY_MIN("30min"),
-        SIXTY_MIN("60min");
+        ONE_MIN("1min", 1),
+        FIVE_MIN("5min", 5) ,
+        FIFTEEN_MIN("15min", 15),
+        THIRTY_MIN("30min", 30),
+        SIXTY_MIN("60min", 60);
 
         private String interval;
-        Interval(String interval) {
+        private int minutes;
+        Interval(String interval, int minutes) {
             this.interval = interval;
+            this.minutes = minutes;
+        }
+
+        /**
+         * Return the time between two consecutive data points
+         * @return the duration of the interval
+         */
+        public Duration toDuration() {
+            return Duration.ofMinutes(minutes);
         }
 
         @Override
@@ -90,6 +131,24 @@ public class DataStreamHandle {
      * @param outputSize the output size for the API call
      */
     public DataStreamHandle(String apiKey,  String symbolName, Interval interval, OutputSize outputSize) {
+        this(null, apiKey, symbolName, interval, outputSize);
+    }
+
+    /**
+     * Constructor for DataStreamHandle class calling an API at another URL, e.g. a proxy or a stub server
+     * @param apiPrefix the URL of the API, without the /query path, or null for Alpha Vantage
+     * @param apiKey my API key used to access the Alpha Vantage API
+     * @param symbolName the name of the stock selected
+     * @param interval the time interval for the API call
+     * @param outputSize the output size for the API call
+     */
+    public DataStreamHandle(String apiPrefix, String apiKey, String symbolName, Interval interval, OutputSize outputSize) {
+        if (apiPrefix != null) {
+            this.apiPrefix = apiPrefix;
+        }
+        this.symbolName = symbolName;
+        this.interval = interval;
+        this.outputSize = outputSize;
         this.params.put("function", this.funcName);
         this.params.put("symbol", symbolName);
         this.params.put("interval", interval.toString());
@@ -97,6 +156,53 @@ public class DataStreamHandle {
         this.params.put("apikey", apiKey);
     }
 
+    /**
+     * Constructor for DataStreamHandle class reading the bars from the given source, e.g. a file or a replay,
+     * instead of calling the API
+     * @param dataSource the source of the bars
+     */
+    public DataStreamHandle(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Get the source of the bars
+     * @return the source given to the constructor, or the API call
+     */
+    public DataSource getDataSource() {
+        if (dataSource == null) {
+            dataSource = new HttpDataSource(getUrl());
+        }
+        return dataSource;
+    }
+
+    /**
+     * Serve the API calls from a cache: a cached series is reused for one interval, then refreshed by a compact
+     * call whose bars replace the last cached ones, so closed days are never downloaded again. The bars are cached
+     * with all their fields, so getDailyStatistics() and streamVolumeWeightedMedian() are served from the cache too.
+     * @param cache the cache
+     * @throws IllegalStateException if the bars do not come from the API
+     */
+    public void useCache(SeriesCache cache) {
+        if (symbolName == null) {
+            throw new IllegalStateException("Only API calls can be cached");
+        }
+        DataSource refreshSource = null;
+        if (outputSize == OutputSize.FULL) {
+            refreshSource = new HttpDataSource(getCompactUrl());
+        }
+        this.dataSource = new CachingDataSource(cache, SeriesCache.key(symbolName, interval, outputSize),
+                new HttpDataSource(getUrl()), refreshSource, interval.toDuration(), Clock.systemUTC());
+    }
+
+    /**
+     * Get the URL of the API call returning only the last bars of the series
+     * @return the URL of the compact API call
+     */
+    private String getCompactUrl() {
+        return new DataStreamHandle(apiPrefix, params.get("apikey"), symbolName, interval, OutputSize.COMPACT).getUrl();
+    }
+
     /**
      * Get the URL for the API call.
      * @return the URL for the API call
@@ -123,11 +229,9 @@ public class DataStreamHandle {
      * @throws IOException if there is an error connecting to the URL or reading the response
      */
     public JSONObject getRequestData() throws IOException {
-        URL url = new URL(getUrl());
-        HttpURLConnection httpURLConnection = (HttpURLConnection) url.openConnection();
-        httpURLConnection.setRequestMethod("GET");
-        httpURLConnection.setRequestProperty("Accept", "application/json");
+        HttpURLConnection httpURLConnection = new HttpDataSource(getUrl()).openConnection();
 
+        long start = Metrics.startTimer();
         BufferedReader bufferedReader = new BufferedReader(new InputStreamReader((httpURLConnection.getInputStream())));
         String data;
         StringBuilder response = new StringBuilder();
@@ -135,38 +239,73 @@ public class DataStreamHandle {
             response.append(data);
         }
         httpURLConnection.disconnect();
+        // The whole body is fetched before it is parsed
+        Metrics.stopTimer(MetricKey.FETCHES, MetricKey.FETCH_NANOS, start);
 
         JSONObject result = new JSONObject(response.toString());
-        System.out.println("Response data: "+ result);
+        Metrics.add(MetricKey.BYTES_READ, response.length());
+        LOGGER.finest(() -> "Response data: " + result);
         return result;
     }
 
     /**
-     * Transform the request data obtained from getRequestData() into a map of local dates and corresponding lists of closing prices.
+     * Transform the bars read from the data source into a map of local dates and corresponding lists of closing prices.
      * @return the map of local dates and corresponding lists of closing prices
      * @throws IOException if there is an error connecting to the URL or reading the response
      */
     public  Map<LocalDate, List<Double>> transformData() throws IOException {
-        JSONObject tmp = getRequestData();
+        Map<LocalDate, List<Double>> dataMap = new HashMap<>();
+        getDataSource().read((epochMinute, close) ->
+                dataMap.computeIfAbsent(EpochMinutes.toLocalDate(epochMinute), date -> new ArrayList<>()).add(close));
+        return dataMap;
+    }
+
+    /**
+     * Transform a response of the API into a map of local dates and corresponding lists of closing prices.
+     * @param tmp the JSON object representing the response
+     * @return the map of local dates and corresponding lists of closing prices
+     */
+    public Map<LocalDate, List<Double>> transformData(JSONObject tmp) {
         List<String> keys = new ArrayList<>(tmp.keySet());
         JSONObject result = tmp.getJSONObject(keys.get(0));
 
         Map<LocalDate, List<Double>> dataMap = new HashMap<>();
+        // Bars of the same day are consecutive in a response, so the list of the previous bar is usually the right one
+        long lastDay = Long.MIN_VALUE;
+        List<Double> dataList = null;
         for (String key : result.keySet()) {
             JSONObject data = result.getJSONObject(key);
-            LocalDateTime dateTime = LocalDateTime.parse(key, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            LocalDate date = dateTime.toLocalDate();
-            List<Double> dataList = dataMap.get(date);
-            if (dataList == null) {
-                dataList = new ArrayList<>();
-                dataMap.put(date, dataList);
+            long day = EpochMinutes.toEpochDay(EpochMinutes.parse(key));
+            if (day != lastDay) {
+                dataList = dataMap.computeIfAbsent(LocalDate.ofEpochDay(day), date -> new ArrayList<>());
+                lastDay = day;
             }
-            dataList.add(Double.parseDouble(data.getString("4. close")));
+            dataList.add(DecimalParser.parse(data.getString("4. close")));
         }
         return dataMap;
     }
 
 
+    /**
+     * Get the rolling median of the closing prices over the last windowSize bars, updated at every bar
+     * @param windowSize the number of bars in the window
+     * @return the map of bar times, in ascending order, and the median of the window ending at each bar
+     * @throws IOException if there is an error connecting to the URL or reading the response
+     */
+    public Map<LocalDateTime, Double> getRollingMedian(int windowSize) throws IOException {
+        BarSeries series = new BarSeries();
+        getDataSource().read(series);
+        series.sort();
+
+        SlidingWindowMedian window = new SlidingWindowMedian(windowSize);
+        Map<LocalDateTime, Double> result = new TreeMap<>();
+        for (int i = 0; i < series.size(); i++) {
+            window.add(series.getClose(i));
+            result.put(EpochMinutes.toLocalDateTime(series.getEpochMinute(i)), window.getMedian());
+        }
+        return result;
+    }
+
     /**
      * Get the computed median price for each date
      * @return the map of local dates and corresponding median prices
@@ -177,16 +316,277 @@ public class DataStreamHandle {
         Map<LocalDate, Double> result = new HashMap<>();
         dataMap.forEach((date, dataList) -> {
             validate(dataList);
-            MedianSelection medianSelection = new MedianSelection();
+            result.put(date, computeMedian(dataList));
+        });
+        LOGGER.fine(() -> "Median: " + result);
+        return result;
+    }
+
+    /**
+     * Get the median price for each date, applying only the bars that are new since the previous call.
+     * Finalized dates are not computed again, so a refresh costs in proportion to the new bars.
+     * @return the map of local dates, in ascending order, and corresponding median prices
+     * @throws IOException if there is an error connecting to the URL or reading the response
+     */
+    public Map<LocalDate, Double> refreshMedian() throws IOException {
+        if (medianStore == null) {
+            medianStore = new IncrementalMedianStore();
+        }
+        medianStore.refresh(getDataSource());
+        return medianStore.getMedians();
+    }
+
+    /**
+     * Read the bars once and compute their quantiles at hourly, daily, weekly and monthly resolutions
+     * @param accumulatorFactory the factory of the accumulator of a bucket, e.g. MedianSelection::new or KllSketch::new
+     * @param <A> the type of accumulator of a bucket
+     * @return the rolled-up buckets
+     * @throws IOException if there is an error connecting to the URL or reading the response
+     */
+    public <A extends QuantileAccumulator & Mergeable<A>> RollupEngine<A> getRollup(Supplier<? extends A> accumulatorFactory) throws IOException {
+        RollupEngine<A> engine = new RollupEngine<>(accumulatorFactory);
+        engine.read(getDataSource());
+        return engine;
+    }
+
+    /**
+     * Start pushing the daily medians to subscribers, polling the API once per interval of the series.
+     * A full series is read in full once, then through the cache if useCache() was called, else by compact calls
+     * covering only the last bars, so a poll does not download the whole history again.
+     * @param scheduler the scheduler running the polls
+     * @param subscribers the subscribers, subscribed before the first poll so that they receive every update
+     * @return the started publisher, to be closed to stop polling
+     * @throws IllegalStateException if the bars do not come from the API
+     */
+    @SafeVarargs
+    public final MedianPublisher publishMedians(ScheduledExecutorService scheduler, Flow.Subscriber<? super MedianPublisher.Update>... subscribers) {
+        if (interval == null) {
+            throw new IllegalStateException("Only API calls have an interval");
+        }
+        DataSource source = getDataSource();
+        if (outputSize == OutputSize.FULL && !(source instanceof CachingDataSource)) {
+            DataSource full = source, compact = new HttpDataSource(getCompactUrl());
+            source = new DataSource() {
+
+                /**
+                 * Whether the full series has been read once
+                 */
+                private boolean loaded;
+
+                @Override
+                public void read(BarHandler handler) throws IOException {
+                    if (loaded) {
+                        compact.read(handler);
+                    } else {
+                        full.read(handler);
+                        loaded = true;
+                    }
+                }
+            };
+        }
+        MedianPublisher publisher = new MedianPublisher(source, ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+        for (Flow.Subscriber<? super MedianPublisher.Update> subscriber : subscribers) {
+            publisher.subscribe(subscriber);
+        }
+        publisher.start(scheduler, interval.toDuration());
+        return publisher;
+    }
+
+    /**
+     * Get the computed median price for each date, computing the dates concurrently on the given executor
+     * @param executor the executor running one task per date, e.g. ForkJoinPool.commonPool()
+     * @return the map of local dates, in ascending order, and corresponding median prices
+     * @throws IOException if there is an error connecting to the URL or reading the response
+     */
+    public Map<LocalDate, Double> getMedian(Executor executor) throws IOException {
+        return getMedian(transformData(), executor);
+    }
+
+    /**
+     * Compute the median of each date of a map of prices, computing the dates concurrently on the given executor
+     * @param dataMap the map of local dates and corresponding lists of prices
+     * @param executor the executor running one task per date
+     * @return the map of local dates, in ascending order, and corresponding median prices
+     * @throws IllegalArgumentException if the list of a date is null or empty
+     */
+    public Map<LocalDate, Double> getMedian(Map<LocalDate, List<Double>> dataMap, Executor executor) {
+        Map<LocalDate, CompletableFuture<Double>> futures = new TreeMap<>();
+        dataMap.forEach((date, dataList) -> {
+            validate(dataList);
+            futures.put(date, CompletableFuture.supplyAsync(() -> computeMedian(dataList), executor));
+        });
+        Map<LocalDate, Double> result = new TreeMap<>();
+        futures.forEach((date, future) -> result.put(date, future.join()));
+        return result;
+    }
+
+    /**
+     * Compute the median of a list of prices. The whole list is at hand, so the median is selected
+     * in linear time by IntroSelect rather than streamed through the heaps of MedianSelection.
+     * @param dataList the prices
+     * @return the median price
+     */
+    private static double computeMedian(List<Double> dataList) {
+        long start = Metrics.startTimer();
+        double[] values = new double[dataList.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = dataList.get(i);
+        }
+        double median = IntroSelect.median(values);
+        Metrics.stopTimer(MetricKey.MEDIANS_COMPUTED, MetricKey.MEDIAN_NANOS, start);
+        return median;
+    }
+
+    /**
+     * Get the quantile of the prices for each date, computed by accumulators of the given kind,
+     * so that each series can be computed exactly (MedianSelection::new) or approximately (KllSketch::new)
+     * @param quantile the quantile, between 0 and 1
+     * @param accumulatorFactory the supplier of an empty accumulator for each date
+     * @return the map of local dates and corresponding quantiles of prices
+     * @throws IOException if there is an error connecting to the URL or reading the response
+     */
+    public Map<LocalDate, Double> getQuantile(double quantile, Supplier<? extends QuantileAccumulator> accumulatorFactory) throws IOException {
+        Map<LocalDate, List<Double>> dataMap = transformData();
+        Map<LocalDate, Double> result = new HashMap<>();
+        dataMap.forEach((date, dataList) -> {
+            validate(dataList);
+            QuantileAccumulator accumulator = accumulatorFactory.get();
             for (Double value : dataList) {
-                medianSelection.add(value);
+                accumulator.add(value);
             }
-            result.put(date, medianSelection.getMedian());
+            result.put(date, accumulator.getQuantile(quantile));
+        });
+        return result;
+    }
+
+    /**
+     * Get the median price for each date while the bars are read: the close prices are fed straight
+     * from the data source into one MedianSelection per date, without buffering the response.
+     * @return the map of local dates, in ascending order, and corresponding median prices
+     * @throws IOException if there is an error connecting to the URL or reading the response
+     */
+    public Map<LocalDate, Double> streamMedian() throws IOException {
+        return streamQuantile(0.5, MedianSelection::new);
+    }
+
+    /**
+     * Get the quantile of the prices for each date while the bars are read from the data source
+     * @param quantile the quantile, between 0 and 1
+     * @param accumulatorFactory the supplier of an empty accumulator for each date
+     * @return the map of local dates, in ascending order, and corresponding quantiles of prices
+     * @throws IOException if there is an error connecting to the URL or reading the response
+     */
+    public Map<LocalDate, Double> streamQuantile(double quantile, Supplier<? extends QuantileAccumulator> accumulatorFactory) throws IOException {
+        return streamQuantile(getDataSource(), quantile, accumulatorFactory);
+    }
+
+    /**
+     * Get the quantile of the prices for each date of a response while it is read
+     * @param reader the reader of the response
+     * @param quantile the quantile, between 0 and 1
+     * @param accumulatorFactory the supplier of an empty accumulator for each date
+     * @return the map of local dates, in ascending order, and corresponding quantiles of prices
+     * @throws IOException if there is an error reading the response or it is malformed
+     */
+    public Map<LocalDate, Double> streamQuantile(Reader reader, double quantile, Supplier<? extends QuantileAccumulator> accumulatorFactory) throws IOException {
+        return streamQuantile(handler -> new AlphaVantageStreamParser(reader).parse(handler), quantile, accumulatorFactory);
+    }
+
+    /**
+     * Get the quantile of the prices for each date while the bars are read from a source
+     * @param source the source of the bars
+     * @param quantile the quantile, between 0 and 1
+     * @param accumulatorFactory the supplier of an empty accumulator for each date
+     * @return the map of local dates, in ascending order, and corresponding quantiles of prices
+     * @throws IOException if the bars cannot be read
+     */
+    private static Map<LocalDate, Double> streamQuantile(DataSource source, double quantile, Supplier<? extends QuantileAccumulator> accumulatorFactory) throws IOException {
+        DailyAccumulators<QuantileAccumulator> accumulators = new DailyAccumulators<>(accumulatorFactory);
+        source.read(accumulators);
+        Map<LocalDate, Double> result = new TreeMap<>();
+        accumulators.byDay.forEach((epochDay, accumulator) -> {
+            long start = Metrics.startTimer();
+            result.put(LocalDate.ofEpochDay(epochDay), accumulator.getQuantile(quantile));
+            Metrics.stopTimer(MetricKey.MEDIANS_COMPUTED, MetricKey.MEDIAN_NANOS, start);
         });
-        System.out.println("Median: " + result);
         return result;
     }
 
+    /**
+     * Get several quantiles of the prices for each date in one pass over the bars, e.g. the 0.05, 0.25, 0.75
+     * and 0.95 quantiles of a risk report, all answered from the heads of one chain of heaps
+     * @param quantiles the quantiles, each between 0 and 1
+     * @return the map of local dates, in ascending order, and corresponding quantiles of prices in the order given
+     * @throws IOException if there is an error connecting to the URL or reading the response
+     */
+    public Map<LocalDate, double[]> streamQuantiles(double... quantiles) throws IOException {
+        // Validate the quantiles before reading any bar
+        new MultiQuantileSelection(quantiles);
+        DailyAccumulators<MultiQuantileSelection> accumulators = new DailyAccumulators<>(() -> new MultiQuantileSelection(quantiles));
+        getDataSource().read(accumulators);
+        Map<LocalDate, double[]> result = new TreeMap<>();
+        accumulators.byDay.forEach((epochDay, accumulator) -> result.put(LocalDate.ofEpochDay(epochDay), accumulator.getQuantiles()));
+        return result;
+    }
+
+    /**
+     * Get the daily statistics of the bars with all their fields, parsed in a single pass over the data source:
+     * median close price, volume-weighted median close price, median true range, and highest and lowest prices
+     * @return the statistics of each date, in ascending order
+     * @throws IOException if there is an error connecting to the URL or reading the response
+     */
+    public DailyOhlcvStatistics getDailyStatistics() throws IOException {
+        OhlcvSeries series = new OhlcvSeries();
+        getDataSource().read(series);
+        return DailyOhlcvStatistics.of(series);
+    }
+
+    /**
+     * Get the volume-weighted median price for each date while the bars are read: the close prices are fed
+     * with their volumes into one WeightedMedianSelection per date, as an alternative to the median of streamMedian()
+     * @return the map of local dates, in ascending order, and corresponding volume-weighted median prices
+     * @throws IOException if there is an error connecting to the URL or reading the response
+     * @throws IllegalArgumentException if a bar has no volume, e.g. the data source only provides close prices,
+     * or no volume was traded on a date
+     */
+    public Map<LocalDate, Double> streamVolumeWeightedMedian() throws IOException {
+        Map<Long, WeightedMedianSelection> byDay = new HashMap<>();
+        getDataSource().read((epochMinute, open, high, low, close, volume) ->
+                byDay.computeIfAbsent(EpochMinutes.toEpochDay(epochMinute), day -> new WeightedMedianSelection()).add(close, volume));
+        Map<LocalDate, Double> result = new TreeMap<>();
+        byDay.forEach((epochDay, selection) -> result.put(LocalDate.ofEpochDay(epochDay), selection.getMedian()));
+        return result;
+    }
+
+    /**
+     * Feed the bars into one accumulator per date. Bars of the same date arrive together,
+     * so the accumulator of the previous bar is reused without a map lookup.
+     */
+    private static class DailyAccumulators<A extends QuantileAccumulator> implements BarHandler {
+
+        private final Supplier<? extends A> accumulatorFactory;
+
+        private final Map<Long, A> byDay = new HashMap<>();
+
+        private long currentDay = Long.MIN_VALUE;
+
+        private A current;
+
+        DailyAccumulators(Supplier<? extends A> accumulatorFactory) {
+            this.accumulatorFactory = accumulatorFactory;
+        }
+
+        @Override
+        public void onBar(long epochMinute, double close) {
+            long epochDay = EpochMinutes.toEpochDay(epochMinute);
+            if (epochDay != currentDay) {
+                currentDay = epochDay;
+                current = byDay.computeIfAbsent(epochDay, day -> accumulatorFactory.get());
+            }
+            current.add(close);
+        }
+    }
+
     /**
      * Validate the input list to ensure it is not null or empty.
      * @param nums the list of numbers to validate
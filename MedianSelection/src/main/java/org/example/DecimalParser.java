@@ -0,0 +1,71 @@
+package org.example;
+
+/**
+ * Parse the decimal prices of the API, such as "123.4500", without allocating. A number of at most 18 digits
+ * whose mantissa fits in 53 bits and whose scale is at most 22 is exactly mantissa / 10^scale, which a single
+ * division rounds correctly. Any other text is handed to Double.parseDouble, so the result is always the one of
+ * Double.parseDouble(text.toString()).
+ */
+public final class DecimalParser {
+
+    /**
+     * Powers of ten that are exact doubles
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Largest number of digits read by the fast path, so that the mantissa never overflows
+     */
+    private static final int MAX_DIGITS = 18;
+
+    /**
+     * Largest mantissa that is an exact double
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private DecimalParser() {
+    }
+
+    /**
+     * Parse a decimal number
+     * @param text the number, e.g. "-12.50"
+     * @return the double value closest to the number
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static double parse(CharSequence text) {
+        int length = text.length(), i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0, scale = 0;
+        boolean point = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_DIGITS) {
+                    return Double.parseDouble(text.toString());
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (point) {
+                    scale++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                // Exponents, whitespace, NaN, Infinity and malformed numbers
+                return Double.parseDouble(text.toString());
+            }
+        }
+        if (digits == 0 || mantissa > MAX_EXACT_MANTISSA || scale >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(text.toString());
+        }
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+}
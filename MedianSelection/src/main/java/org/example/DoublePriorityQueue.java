@@ -0,0 +1,64 @@
+package org.example;
+
+/**
+ * A priority queue of primitive double values, as used by the two heaps of MedianSelection.
+ */
+public interface DoublePriorityQueue {
+
+    /**
+     * Add a new element in the priority queue
+     * @param num The number to be added to the priority queue
+     */
+    void add(double num);
+
+    /**
+     * Retrieve and remove the head of this priority queue
+     * @return the removed element
+     */
+    double remove();
+
+    /**
+     * Retrieve the head of this priority queue
+     * @return the head element
+     */
+    double peek();
+
+    /**
+     * Return the number of items in the priority queue
+     * @return the number of items
+     */
+    int size();
+
+    /**
+     * Check if the priority queue is empty
+     * @return the boolean
+     */
+    boolean isEmpty();
+
+    /**
+     * Copy the elements of the priority queue, in heap order
+     * @return a new array holding the elements
+     */
+    double[] toArray();
+
+    /**
+     * Add the elements of a range of an array in the priority queue
+     * @param values the array
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     */
+    default void addAll(double[] values, int from, int to) {
+        for (int i = from; i < to; i++) {
+            add(values[i]);
+        }
+    }
+
+    /**
+     * Remove all elements from the priority queue
+     */
+    default void clear() {
+        while (!isEmpty()) {
+            remove();
+        }
+    }
+}
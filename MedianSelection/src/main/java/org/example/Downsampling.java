@@ -0,0 +1,85 @@
+package org.example;
+
+/**
+ * Reduce a series to fewer points that keep its visual shape, so that a chart never draws more points than it has pixels.
+ * It implements Largest-Triangle-Three-Buckets: the first and last points are kept, the points between them are split
+ * into equal buckets, and each bucket keeps the point forming the largest triangle with the point kept in the previous
+ * bucket and the average of the next bucket. Peaks and troughs survive, unlike with averaging or striding.
+ */
+public final class Downsampling {
+
+    private Downsampling() {
+    }
+
+    /**
+     * Select the points of a series to keep
+     * @param x the x coordinates, in ascending order
+     * @param y the y coordinates
+     * @param size the number of points of the series
+     * @param threshold the number of points to keep, at least 3
+     * @return the ascending indices of the points to keep, all of them if size is at most threshold
+     * @throws IllegalArgumentException if threshold is less than 3 or size is out of the arrays
+     */
+    public static int[] largestTriangleThreeBuckets(double[] x, double[] y, int size, int threshold) {
+        if (threshold < 3) {
+            throw new IllegalArgumentException("Threshold must be at least 3: " + threshold);
+        }
+        if (size < 0 || size > x.length || size > y.length) {
+            throw new IllegalArgumentException("Illegal size: " + size);
+        }
+        int[] indices;
+        if (size <= threshold) {
+            indices = new int[size];
+            for (int i = 0; i < size; i++) {
+                indices[i] = i;
+            }
+            return indices;
+        }
+        indices = new int[threshold];
+        // Buckets of the points between the first and the last one, the last bucket ending at size - 1
+        int kept = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int from = bucketStart(bucket, size, threshold);
+            int to = bucketStart(bucket + 1, size, threshold);
+            // Average of the next bucket, the last point for the last bucket
+            int nextFrom = to, nextTo = Math.min(bucketStart(bucket + 2, size, threshold), size);
+            if (bucket == threshold - 3) {
+                nextFrom = size - 1;
+                nextTo = size;
+            }
+            double averageX = 0, averageY = 0;
+            for (int i = nextFrom; i < nextTo; i++) {
+                averageX += x[i];
+                averageY += y[i];
+            }
+            averageX /= nextTo - nextFrom;
+            averageY /= nextTo - nextFrom;
+            double keptX = x[kept], keptY = y[kept];
+            double maxArea = -1;
+            int selected = from;
+            for (int i = from; i < to; i++) {
+                // Twice the area of the triangle, the factor does not change the maximum
+                double area = Math.abs((keptX - averageX) * (y[i] - keptY) - (keptX - x[i]) * (averageY - keptY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    selected = i;
+                }
+            }
+            indices[bucket + 1] = selected;
+            kept = selected;
+        }
+        indices[threshold - 1] = size - 1;
+        return indices;
+    }
+
+    /**
+     * Return the first index of a bucket, in integer arithmetic so that rounding never leaves a point out of every bucket
+     * @param bucket the bucket, from 0 for the bucket after the first point
+     * @param size the number of points of the series
+     * @param threshold the number of points to keep
+     * @return the index of the first point of the bucket, size - 1 for the bucket after the last one
+     */
+    private static int bucketStart(int bucket, int size, int threshold) {
+        return (int) (1 + (long) bucket * (size - 2) / (threshold - 2));
+    }
+}
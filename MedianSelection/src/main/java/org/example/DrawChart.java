@@ -2,6 +2,8 @@ package org.example;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartFrame;
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.DateAxis;
 import org.jfree.chart.block.BlockBorder;
@@ -10,23 +12,91 @@ import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
 import org.jfree.data.time.Day;
 import org.jfree.data.time.TimeSeries;
 import org.jfree.data.time.TimeSeriesCollection;
+import org.jfree.svg.SVGGraphics2D;
 
+import javax.swing.SwingUtilities;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Flow;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
- * Draw and display a time series chart
+ * Draw and display a time series chart, or save it to a PNG or SVG file without a display. The chart can be updated in place: a batch of new or changed points fires
+ * a single change event of the dataset, and a series longer than the plot is wide is down-sampled to one point
+ * per pixel by Downsampling.largestTriangleThreeBuckets before being drawn.
+ * Points updated after the last point down-sampled are drawn as they are, so a live update costs the size of its
+ * batch; the whole series is down-sampled again, to half the largest number of points to leave room for the next
+ * ones, only when more points are drawn than allowed or when a point of the down-sampled history changes.
  */
 public class DrawChart {
 
+    /**
+     * Logger of the live updates
+     */
+    private static final Logger LOGGER = Logger.getLogger(DrawChart.class.getName());
+
+    /**
+     * The format of a saved chart
+     */
+    public static enum Format {
+        PNG("png"),
+        SVG("svg");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * Return the extension of the files of the format
+         * @return the extension, without dot
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
     /**
      * Declare jFreeChart
      */
     private JFreeChart jFreeChart;
 
+    /**
+     * The series drawn, down-sampled from points when they are more than maxPoints
+     */
+    private TimeSeries timeSeries;
+
+    /**
+     * Every point of the chart, in ascending order of date
+     */
+    private final TreeMap<LocalDate, Double> points = new TreeMap<>();
+
+    /**
+     * First date from which every point is drawn, null if no point is down-sampled
+     */
+    private LocalDate rawFrom;
+
+    /**
+     * Largest number of points drawn, 0 to use the width of the chart panel once shown
+     */
+    private int maxPoints;
+
+    /**
+     * The panel showing the chart, null until it is shown
+     */
+    private ChartPanel chartPanel;
+
     /**
      * Constructor for DrawChart class
      * Construct a new DrawChart object with the specified name, data, title, xLabel, and yLabel.
@@ -40,6 +110,210 @@ public class DrawChart {
         this.jFreeChart = init(name, data, title, xLabel, yLabel);
     }
 
+    /**
+     * Return the chart
+     * @return the JFreeChart object drawn
+     */
+    public JFreeChart getChart() {
+        return jFreeChart;
+    }
+
+    /**
+     * Add or replace points of the chart in one batch, so that the chart is repainted once.
+     * Once the chart is shown, this must be called on the event dispatch thread.
+     * @param data the new or changed points, as a map of LocalDate keys and Double values
+     */
+    public void update(Map<LocalDate, Double> data) {
+        boolean historyChanged = false;
+        for (Map.Entry<LocalDate, Double> entry : data.entrySet()) {
+            if (isDownsampled(entry.getKey())) {
+                Double previous = points.get(entry.getKey());
+                historyChanged |= previous == null || Double.compare(previous, entry.getValue()) != 0;
+            }
+        }
+        points.putAll(data);
+        if (historyChanged) {
+            redraw(Math.max(3, getMaxPoints() / 2));
+            return;
+        }
+        timeSeries.setNotify(false);
+        // Points of the down-sampled history are unchanged here, so only the later ones are drawn
+        data.forEach((date, median) -> {
+            if (!isDownsampled(date)) {
+                timeSeries.addOrUpdate(toDay(date), median);
+            }
+        });
+        if (timeSeries.getItemCount() > getMaxPoints()) {
+            redraw(Math.max(3, getMaxPoints() / 2));
+            return;
+        }
+        // Fires one change event for the whole batch
+        timeSeries.setNotify(true);
+    }
+
+    /**
+     * Replace the whole content of the chart, keeping its plot, axes and renderer, so that one chart can be
+     * drawn for many series without building a new one each time
+     * @param name the name of the time series.
+     * @param data the data as a map of LocalDate keys and Double values.
+     * @param title the title of the chart.
+     */
+    public void setData(String name, Map<LocalDate, Double> data, String title) {
+        points.clear();
+        points.putAll(data);
+        // A series is named once, so swap in a new one
+        TimeSeriesCollection timeSeriesCollection = (TimeSeriesCollection) jFreeChart.getXYPlot().getDataset();
+        timeSeries = new TimeSeries(name);
+        redraw();
+        timeSeriesCollection.removeAllSeries();
+        timeSeriesCollection.addSeries(timeSeries);
+        jFreeChart.setTitle(title);
+    }
+
+    /**
+     * Save the chart to a file, without a display
+     * @param file the path of the file
+     * @param format the format of the file
+     * @param width the width of the chart, in pixels
+     * @param height the height of the chart, in pixels
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file, Format format, int width, int height) throws IOException {
+        if (format == Format.PNG) {
+            ChartUtils.saveChartAsPNG(file.toFile(), jFreeChart, width, height);
+        } else {
+            // ExportUtils.writeAsSVG looks up a constructor that JFreeSVG 5 no longer has, so draw on JFreeSVG directly
+            SVGGraphics2D g2 = new SVGGraphics2D(width, height);
+            jFreeChart.draw(g2, new Rectangle(width, height));
+            Files.writeString(file, g2.getSVGDocument());
+        }
+    }
+
+    /**
+     * Keep the chart up to date with the medians pushed by a publisher
+     * @param publisher the publisher of the medians
+     */
+    public void subscribe(MedianPublisher publisher) {
+        publisher.subscribe(newSubscriber());
+    }
+
+    /**
+     * Create a subscriber keeping the chart up to date with the medians it receives. The updates received while the
+     * event dispatch thread is busy are coalesced and applied as one batch, the latest median of each date winning.
+     * A failure of the publisher, after which the chart is no longer updated, is logged.
+     * @return the subscriber, to be subscribed to one publisher
+     */
+    public Flow.Subscriber<MedianPublisher.Update> newSubscriber() {
+        return new Flow.Subscriber<>() {
+
+            /**
+             * Updates not yet applied, null when no batch is scheduled
+             */
+            private Map<LocalDate, Double> pending;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public synchronized void onNext(MedianPublisher.Update update) {
+                if (pending == null) {
+                    pending = new TreeMap<>();
+                    SwingUtilities.invokeLater(this::flush);
+                }
+                pending.put(update.getDate(), update.getMedian());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                LOGGER.log(Level.WARNING, "Live updates of chart " + timeSeries.getKey() + " stopped", throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                LOGGER.fine(() -> "Live updates of chart " + timeSeries.getKey() + " completed");
+            }
+
+            private void flush() {
+                Map<LocalDate, Double> batch;
+                synchronized (this) {
+                    batch = pending;
+                    pending = null;
+                }
+                update(batch);
+            }
+        };
+    }
+
+    /**
+     * Set the largest number of points drawn
+     * @param maxPoints the number of points, at least 3, or 0 to use the width of the chart panel once shown
+     * @throws IllegalArgumentException if maxPoints is 1, 2 or negative
+     */
+    public void setMaxPoints(int maxPoints) {
+        if (maxPoints != 0 && maxPoints < 3) {
+            throw new IllegalArgumentException("Illegal number of points: " + maxPoints);
+        }
+        this.maxPoints = maxPoints;
+        redraw();
+    }
+
+    /**
+     * Return the largest number of points drawn
+     * @return the number of points set, else the width of the chart panel in pixels, else Integer.MAX_VALUE
+     */
+    public int getMaxPoints() {
+        if (maxPoints > 0) {
+            return maxPoints;
+        }
+        if (chartPanel != null && chartPanel.getWidth() >= 3) {
+            return chartPanel.getWidth();
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Replace the series drawn by the points, down-sampled to the largest number of points if needed, firing one change event
+     */
+    private void redraw() {
+        redraw(Math.max(3, getMaxPoints()));
+    }
+
+    /**
+     * Replace the series drawn by the points, down-sampled if needed, firing one change event
+     * @param threshold the largest number of points drawn, at least 3
+     */
+    private void redraw(int threshold) {
+        int size = points.size();
+        LocalDate[] dates = new LocalDate[size];
+        double[] x = new double[size], y = new double[size];
+        int i = 0;
+        for (Map.Entry<LocalDate, Double> entry : points.entrySet()) {
+            dates[i] = entry.getKey();
+            x[i] = entry.getKey().toEpochDay();
+            y[i++] = entry.getValue();
+        }
+        int[] kept = Downsampling.largestTriangleThreeBuckets(x, y, size, Math.max(3, Math.min(size, threshold)));
+        // The last point is always kept, so the points after it can be drawn as they come
+        rawFrom = kept.length < size ? dates[size - 1] : null;
+        timeSeries.setNotify(false);
+        timeSeries.clear();
+        for (int index : kept) {
+            timeSeries.add(toDay(dates[index]), y[index], false);
+        }
+        timeSeries.setNotify(true);
+    }
+
+    /**
+     * Check whether a date falls in the down-sampled history, before the last point down-sampled
+     * @param date the local date
+     * @return true if the point of the date is drawn only if it was kept by the last down-sampling
+     */
+    private boolean isDownsampled(LocalDate date) {
+        return rawFrom != null && date.isBefore(rawFrom);
+    }
+
     /**
      * Initialize and returns a new JFreeChart object
      * @param name the name of the time series.
@@ -50,10 +324,11 @@ public class DrawChart {
      * @return a new JFreeChart object.
      */
     private JFreeChart init(String name, Map<LocalDate, Double> data, String title, String xLabel, String yLabel) {
-        TimeSeries timeSeries = new TimeSeries(name);
+        timeSeries = new TimeSeries(name);
         data.forEach((date, median) -> {
-            timeSeries.add(new Day(date.getDayOfMonth(), date.getMonthValue(), date.getYear()), median);
+            timeSeries.add(toDay(date), median);
         });
+        points.putAll(data);
         TimeSeriesCollection timeSeriesCollection = new TimeSeriesCollection();
         timeSeriesCollection.addSeries(timeSeries);
 
@@ -88,7 +363,26 @@ public class DrawChart {
      */
     public void showChart(String frameTitle ) {
         ChartFrame frame = new ChartFrame(frameTitle, jFreeChart);
+        chartPanel = frame.getChartPanel();
+        // Down-sample again to the new width
+        chartPanel.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                if (maxPoints == 0 && (points.size() > timeSeries.getItemCount() || points.size() > getMaxPoints())) {
+                    redraw();
+                }
+            }
+        });
         frame.pack();
         frame.setVisible(true);
     }
+
+    /**
+     * Convert a date into the period of the series
+     * @param date the local date
+     * @return the day
+     */
+    private static Day toDay(LocalDate date) {
+        return new Day(date.getDayOfMonth(), date.getMonthValue(), date.getYear());
+    }
 }
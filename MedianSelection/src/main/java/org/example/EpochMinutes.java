@@ -0,0 +1,138 @@
+package org.example;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Conversions between local date-times of the API and epoch minutes, the number of minutes since
+ * 1970-01-01T00:00 in the same local time. Keeping bar times as primitive longs avoids an object per bar,
+ * and the date of a bar is simply its epoch minute divided by the minutes of a day.
+ */
+public final class EpochMinutes {
+
+    /**
+     * Number of minutes in a day
+     */
+    public static final long MINUTES_PER_DAY = 24 * 60;
+
+    /**
+     * Format of the timestamps of the API
+     */
+    public static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * Length of a timestamp of the API
+     */
+    private static final int TIMESTAMP_LENGTH = 19;
+
+    /**
+     * Number of days from 0000-01-01 to 1970-01-01
+     */
+    private static final long DAYS_0000_TO_1970 = 719_528;
+
+    private EpochMinutes() {
+    }
+
+    /**
+     * Parse a yyyy-MM-dd HH:mm:ss timestamp of the API into its epoch minute, dropping seconds, without allocating.
+     * The fixed layout is read digit by digit; a timestamp outside of it or with out-of-range fields,
+     * e.g. 24:00:00 or February 30, is handed to TIMESTAMP_FORMATTER, so the result is always the one of
+     * EpochMinutes.of(LocalDateTime.parse(text, TIMESTAMP_FORMATTER)).
+     * @param text the timestamp
+     * @return the epoch minute
+     * @throws java.time.format.DateTimeParseException if the text is not a timestamp
+     */
+    public static long parse(CharSequence text) {
+        if (text.length() == TIMESTAMP_LENGTH && text.charAt(4) == '-' && text.charAt(7) == '-' && text.charAt(10) == ' '
+                && text.charAt(13) == ':' && text.charAt(16) == ':') {
+            int year = digits(text, 0, 4), month = digits(text, 5, 2), day = digits(text, 8, 2);
+            int hour = digits(text, 11, 2), minute = digits(text, 14, 2), second = digits(text, 17, 2);
+            if (year >= 1 && month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month)
+                    && hour >= 0 && hour < 24 && minute >= 0 && minute < 60 && second >= 0 && second < 60) {
+                return epochDay(year, month, day) * MINUTES_PER_DAY + hour * 60 + minute;
+            }
+        }
+        return of(LocalDateTime.parse(text, TIMESTAMP_FORMATTER));
+    }
+
+    /**
+     * Read a fixed number of decimal digits
+     * @param text the text
+     * @param from the index of the first digit
+     * @param count the number of digits
+     * @return the number, or -1 if a character is not a digit
+     */
+    private static int digits(CharSequence text, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> isLeapYear(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * Compute the epoch day of a valid date of a positive year, as LocalDate.toEpochDay does
+     */
+    private static long epochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12 + day - 1;
+        if (month > 2) {
+            total -= isLeapYear(year) ? 1 : 2;
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Convert a local date-time to epoch minutes, dropping seconds
+     * @param dateTime the local date-time
+     * @return the epoch minute
+     */
+    public static long of(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    /**
+     * Return the epoch day of an epoch minute
+     * @param epochMinute the epoch minute
+     * @return the number of days since 1970-01-01
+     */
+    public static long toEpochDay(long epochMinute) {
+        return Math.floorDiv(epochMinute, MINUTES_PER_DAY);
+    }
+
+    /**
+     * Convert an epoch minute to its local date
+     * @param epochMinute the epoch minute
+     * @return the local date
+     */
+    public static LocalDate toLocalDate(long epochMinute) {
+        return LocalDate.ofEpochDay(toEpochDay(epochMinute));
+    }
+
+    /**
+     * Convert an epoch minute to its local date-time
+     * @param epochMinute the epoch minute
+     * @return the local date-time
+     */
+    public static LocalDateTime toLocalDateTime(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+}
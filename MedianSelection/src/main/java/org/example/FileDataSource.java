@@ -0,0 +1,146 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Read the bars of a time series from a local file, either a saved JSON response of the API
+ * or a CSV file with a header line, as returned by the API with datatype=csv
+ */
+public class FileDataSource implements DataSource {
+
+    /**
+     * The format of a file
+     */
+    public static enum Format {
+        JSON,
+        CSV
+    }
+
+    /**
+     * Declare path
+     */
+    private final Path path;
+
+    /**
+     * Declare format
+     */
+    private final Format format;
+
+    /**
+     * Constructor for FileDataSource class, guessing the format from the extension of the file
+     * @param path the path of the file, whose name ends with .csv for a CSV file
+     */
+    public FileDataSource(Path path) {
+        this(path, path.getFileName().toString().toLowerCase().endsWith(".csv") ? Format.CSV : Format.JSON);
+    }
+
+    /**
+     * Constructor for FileDataSource class
+     * @param path the path of the file
+     * @param format the format of the file
+     */
+    public FileDataSource(Path path, Format format) {
+        this.path = path;
+        this.format = format;
+    }
+
+    /**
+     * Read the file and hand its bars to the handler
+     * @param handler the handler of the bars
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    @Override
+    public void read(BarHandler handler) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            if (format == Format.JSON) {
+                new AlphaVantageStreamParser(reader).parse(handler);
+            } else {
+                readCsv(reader, null, handler);
+            }
+        }
+    }
+
+    /**
+     * Read the file and hand its bars with all their fields to the handler. The open, high, low and volume
+     * columns of a CSV file are optional, and NaN when missing.
+     * @param handler the handler of the bars
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    @Override
+    public void read(OhlcvHandler handler) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            if (format == Format.JSON) {
+                new AlphaVantageStreamParser(reader).parse(handler);
+            } else {
+                readCsv(reader, handler, null);
+            }
+        }
+    }
+
+    /**
+     * Read a CSV file whose header names a timestamp column and a close column, and hand its bars to the handler that is not null
+     * @param reader the reader of the file
+     * @param ohlcvHandler the handler of all the fields of the bars
+     * @param barHandler the handler of the close prices of the bars
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    private void readCsv(BufferedReader reader, OhlcvHandler ohlcvHandler, BarHandler barHandler) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            return;
+        }
+        String[] columns = header.split(",");
+        int timestampColumn = -1, openColumn = -1, highColumn = -1, lowColumn = -1, closeColumn = -1, volumeColumn = -1;
+        for (int i = 0; i < columns.length; i++) {
+            switch (columns[i].trim()) {
+                case "timestamp" -> timestampColumn = i;
+                case "open" -> openColumn = i;
+                case "high" -> highColumn = i;
+                case "low" -> lowColumn = i;
+                case "close" -> closeColumn = i;
+                case "volume" -> volumeColumn = i;
+                default -> { }
+            }
+        }
+        if (timestampColumn < 0 || closeColumn < 0) {
+            throw new IOException("CSV header must name timestamp and close columns: " + header);
+        }
+        String line;
+        int lineNumber = 1;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            try {
+                long epochMinute = EpochMinutes.parse(fields[timestampColumn].trim());
+                double close = DecimalParser.parse(fields[closeColumn].trim());
+                if (ohlcvHandler == null) {
+                    barHandler.onBar(epochMinute, close);
+                } else {
+                    ohlcvHandler.onBar(epochMinute, field(fields, openColumn), field(fields, highColumn),
+                            field(fields, lowColumn), close, field(fields, volumeColumn));
+                }
+            } catch (DateTimeParseException | NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Malformed CSV line " + lineNumber + " of " + path + ": " + line, e);
+            }
+        }
+    }
+
+    /**
+     * Parse an optional column of a CSV line
+     * @param fields the fields of the line
+     * @param column the index of the column, negative if the file has no such column
+     * @return the value of the field, NaN if the file has no such column
+     */
+    private static double field(String[] fields, int column) {
+        return column < 0 ? Double.NaN : DecimalParser.parse(fields[column].trim());
+    }
+}
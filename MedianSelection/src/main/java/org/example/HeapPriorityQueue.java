@@ -7,7 +7,7 @@ import java.util.List;
 /**
  * An implementation of a priority queue using a list-based heap.
  */
-public class HeapPriorityQueue{
+public class HeapPriorityQueue implements DoublePriorityQueue {
 
     /**
      * Declare data
@@ -35,77 +35,124 @@ public class HeapPriorityQueue{
         this.comparator = comparator;
     }
 
+    /**
+     * Create a priority queue holding the given values, using the given comparator to order keys,
+     * built in linear time by Floyd's heapify
+     * @param comparator it is used to order the elements in this priority queue, null for the natural ordering
+     * @param values the values, which are copied
+     */
+    public HeapPriorityQueue(Comparator<Double> comparator, double[] values) {
+        data = new ArrayList<Double>(values.length);
+        this.comparator = comparator;
+        addAll(values, 0, values.length);
+    }
+
     /**
      * Add a new element in the priority queue
      * @param num The number to be added to the priority queue
      **/
+    @Override
     public void add(double num) {
         data.add(num);
-        upHeapify(data.size() - 1);
+        upHeapify(data.size() - 1, num);
     }
 
     /**
      * Retrieve and remove the head of this priority queue
      * @return the removed element
      **/
+    @Override
     public double remove() {
         if (data.size() == 0) {
             throw new IllegalArgumentException();
         }
-        swap(0, data.size() - 1);
-        double tmp = data.remove(data.size() - 1);
-        downHeapify(0);
-        return tmp;
+        Double head = data.get(0);
+        Double last = data.remove(data.size() - 1);
+        if (!data.isEmpty()) {
+            downHeapify(0, last);
+        }
+        return head;
     }
 
     /**
-     * Compare element at the given index with its parent and swaps them, till the heap is balanced
-     * @param i the index of target element
+     * Add the elements of a range of an array in the priority queue. When they are at least as many as the elements
+     * already in the queue, the whole heap is rebuilt in linear time by Floyd's heapify instead of sifting each one up.
+     * @param values the array
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
      **/
-    private void upHeapify(int i) {
-        if (i == 0) return;
-        int parent = (i - 1) / 2;
-        if (compare(data.get(i), data.get(parent)) < 0) {
-            swap(i, parent);
-            upHeapify(parent);
+    @Override
+    public void addAll(double[] values, int from, int to) {
+        if (to - from < data.size()) {
+            DoublePriorityQueue.super.addAll(values, from, to);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            data.add(values[i]);
+        }
+        // Sift down every node with a child, from the last one to the root
+        for (int i = data.size() / 2 - 1; i >= 0; i--) {
+            downHeapify(i, data.get(i));
         }
     }
 
     /**
-     * Compare element at the given index with its children and swaps them, till the heap is balanced.
-     * @param i the index of the target element
+     * Remove all elements from the priority queue
      **/
-    private void downHeapify(int i) {
-        int target  = i;
-        int left = 2 * i + 1;
-        int right = 2 * i + 2;
-        if (left < data.size() && compare(data.get(left), data.get(target)) < 0) {
-            target = left;
-        }
-        if (right < data.size() && compare(data.get(right), data.get(target)) < 0) {
-            target = right;
-        }
-        if (target != i) {
-            swap(target, i);
-            downHeapify(i);
+    @Override
+    public void clear() {
+        data.clear();
+    }
+
+    /**
+     * Move the hole at index i towards the root, shifting the parents down, until value can be placed without breaking the heap
+     * @param i the index of the hole
+     * @param value the value to be placed
+     **/
+    private void upHeapify(int i, Double value) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            Double p = data.get(parent);
+            if (compare(value, p) >= 0) {
+                break;
+            }
+            data.set(i, p);
+            i = parent;
         }
+        data.set(i, value);
     }
 
     /**
-     * Swap the element at indices i and j of the list.
-     * @param i the index of the element that wants to swap
-     * @param j the index of the element that wants to swap
-     */
-    private void swap(int i, int j) {
-        Double tmp = data.get(i);
-        data.set(i, data.get(j));
-        data.set(j, tmp);
+     * Move the hole at index i towards the leaves, shifting the smaller child up, until value can be placed without breaking the heap
+     * @param i the index of the hole
+     * @param value the value to be placed
+     **/
+    private void downHeapify(int i, Double value) {
+        int size = data.size();
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            Double c = data.get(child);
+            if (child + 1 < size && compare(data.get(child + 1), c) < 0) {
+                child++;
+                c = data.get(child);
+            }
+            if (compare(c, value) >= 0) {
+                break;
+            }
+            data.set(i, c);
+            i = child;
+        }
+        data.set(i, value);
     }
 
     /**
      * Retrieve the head of this priority queue
      * @return the head element
      **/
+    @Override
     public double peek() {
         if (data.size() == 0) {
             throw new IllegalArgumentException();
@@ -117,6 +164,7 @@ public class HeapPriorityQueue{
      * Return the number of items in the priority queue
      * @return the number of items
      **/
+    @Override
     public int size() {
         return data.size();
     }
@@ -125,10 +173,24 @@ public class HeapPriorityQueue{
      * Check if the priority queue is empty
      * @return the boolean
      **/
+    @Override
     public boolean isEmpty() {
         return data.size() == 0;
     }
 
+    /**
+     * Copy the elements of the priority queue, in heap order
+     * @return a new array holding the elements
+     **/
+    @Override
+    public double[] toArray() {
+        double[] result = new double[data.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = data.get(i);
+        }
+        return result;
+    }
+
     /**
      * compare two element according to key
      * @param a the element that wants to compare
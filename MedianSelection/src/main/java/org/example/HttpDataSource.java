@@ -0,0 +1,88 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read the bars of an intraday time series from the Alpha Vantage API, streaming the response through AlphaVantageStreamParser
+ */
+public class HttpDataSource implements DataSource {
+
+    /**
+     * Url of the API call
+     */
+    private final String url;
+
+    /**
+     * Constructor for HttpDataSource class
+     * @param url the URL of the API call, e.g. DataStreamHandle.getUrl()
+     */
+    public HttpDataSource(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Open a connection for the API call
+     * @return the connection
+     * @throws IOException if there is an error connecting to the URL
+     */
+    public HttpURLConnection openConnection() throws IOException {
+        HttpURLConnection httpURLConnection = (HttpURLConnection) new URL(url).openConnection();
+        httpURLConnection.setRequestMethod("GET");
+        httpURLConnection.setRequestProperty("Accept", "application/json");
+        return httpURLConnection;
+    }
+
+    /**
+     * Call the API and hand the bars of the response to the handler while it is read
+     * @param handler the handler of the bars
+     * @throws IOException if there is an error connecting to the URL or reading the response
+     */
+    @Override
+    public void read(BarHandler handler) throws IOException {
+        read(null, handler);
+    }
+
+    /**
+     * Call the API and hand the bars of the response with all their fields to the handler while it is read
+     * @param handler the handler of the bars
+     * @throws IOException if there is an error connecting to the URL or reading the response
+     */
+    @Override
+    public void read(OhlcvHandler handler) throws IOException {
+        read(handler, null);
+    }
+
+    /**
+     * Call the API and hand the bars of the response to the handler that is not null, timing the call until the response starts
+     * @param ohlcvHandler the handler of all the fields of the bars
+     * @param barHandler the handler of the close prices of the bars
+     * @throws IOException if there is an error connecting to the URL or reading the response
+     */
+    private void read(OhlcvHandler ohlcvHandler, BarHandler barHandler) throws IOException {
+        HttpURLConnection httpURLConnection = openConnection();
+        try {
+            long start = Metrics.startTimer();
+            InputStream input = httpURLConnection.getInputStream();
+            Metrics.stopTimer(MetricKey.FETCHES, MetricKey.FETCH_NANOS, start);
+            try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+                new AlphaVantageStreamParser(reader).parse(ohlcvHandler, barHandler);
+            }
+        } finally {
+            httpURLConnection.disconnect();
+        }
+    }
+
+    /**
+     * Return the URL of the API call
+     * @return the URL
+     */
+    public String getUrl() {
+        return url;
+    }
+}
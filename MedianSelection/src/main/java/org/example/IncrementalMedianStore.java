@@ -0,0 +1,182 @@
+package org.example;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Keep the daily medians of a series up to date as new bars arrive. The dates still open keep a live MedianSelection
+ * to which new bars are applied as deltas; once a later date starts, the earlier dates are finalized and frozen into
+ * an immutable map of medians and their heaps are dropped. The cost of a refresh depends on the number of new bars,
+ * not on the length of the history. A bar of an open date may arrive late or be revised, as the API does with the
+ * close of the bar still forming: a revised bar replaces the previous one, and the median of its date is rebuilt
+ * from the closes of the date.
+ */
+public class IncrementalMedianStore {
+
+    /**
+     * Live medians of the open dates, by epoch day
+     */
+    private final Map<Long, OpenDate> open = new HashMap<>();
+
+    /**
+     * Medians of the finalized dates
+     */
+    private final NavigableMap<LocalDate, Double> frozen = new TreeMap<>();
+
+    /**
+     * Time of the latest bar applied, the dates before its date are frozen
+     */
+    private long watermark = Long.MIN_VALUE;
+
+    /**
+     * Read a source and apply the bars of the open dates and later dates, then freeze the dates before the date of
+     * the latest bar. Bars already applied with the same close are skipped, so the source may repeat them, and the bars
+     * of frozen dates are ignored.
+     * @param source the source of the bars, in any order
+     * @return the number of bars applied, new or revised
+     * @throws IOException if the source cannot be read
+     */
+    public int refresh(DataSource source) throws IOException {
+        BarSeries fresh = new BarSeries();
+        source.read((epochMinute, close) -> {
+            if (!isFrozen(epochMinute)) {
+                fresh.onBar(epochMinute, close);
+            }
+        });
+        fresh.sort();
+        int applied = 0;
+        for (int i = 0; i < fresh.size(); i++) {
+            if (apply(fresh.getEpochMinute(i), fresh.getClose(i))) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Apply one bar of an open date or a later date, and freeze the dates before its date if it is the latest bar.
+     * A bar at the time of a bar already applied replaces it.
+     * @param epochMinute the time of the bar
+     * @param close the close price of the bar
+     * @return true if the bar is new or revises the close of a bar, false if it repeats a bar applied
+     * @throws IllegalArgumentException if the date of the bar is frozen
+     */
+    public boolean apply(long epochMinute, double close) {
+        if (isFrozen(epochMinute)) {
+            throw new IllegalArgumentException("Date of the bar at " + EpochMinutes.toLocalDateTime(epochMinute) + " is frozen");
+        }
+        long epochDay = EpochMinutes.toEpochDay(epochMinute);
+        if (epochMinute > watermark) {
+            if (watermark != Long.MIN_VALUE && epochDay > EpochMinutes.toEpochDay(watermark)) {
+                freezeBefore(epochDay);
+            }
+            watermark = epochMinute;
+        }
+        return open.computeIfAbsent(epochDay, day -> new OpenDate()).apply(epochMinute, close);
+    }
+
+    /**
+     * Check whether the date of a time is frozen, so that its bars are no longer applied
+     * @param epochMinute the time
+     * @return true if the date is before the date of the latest bar applied
+     */
+    public boolean isFrozen(long epochMinute) {
+        return watermark != Long.MIN_VALUE && EpochMinutes.toEpochDay(epochMinute) < EpochMinutes.toEpochDay(watermark);
+    }
+
+    /**
+     * Get the median of every date, the frozen ones and the open ones
+     * @return the map of local dates, in ascending order, and corresponding median prices
+     */
+    public Map<LocalDate, Double> getMedians() {
+        Map<LocalDate, Double> result = new TreeMap<>(frozen);
+        result.putAll(getOpenMedians());
+        return result;
+    }
+
+    /**
+     * Get the medians of the finalized dates
+     * @return an unmodifiable map of local dates, in ascending order, and corresponding median prices
+     */
+    public NavigableMap<LocalDate, Double> getFrozenMedians() {
+        return Collections.unmodifiableNavigableMap(frozen);
+    }
+
+    /**
+     * Get the medians of the dates still open
+     * @return the map of local dates, in ascending order, and corresponding median prices
+     */
+    public Map<LocalDate, Double> getOpenMedians() {
+        Map<LocalDate, Double> result = new TreeMap<>();
+        open.forEach((epochDay, date) -> result.put(LocalDate.ofEpochDay(epochDay), date.selection.getMedian()));
+        return result;
+    }
+
+    /**
+     * Return the time of the latest bar applied
+     * @return the epoch minute of the latest bar, Long.MIN_VALUE if no bar has been applied
+     */
+    public long getLatestEpochMinute() {
+        return watermark;
+    }
+
+    /**
+     * Return the number of dates still open
+     * @return the number of open dates
+     */
+    public int getOpenDateCount() {
+        return open.size();
+    }
+
+    /**
+     * Freeze the open dates before the given day
+     * @param epochDay the first day to keep open
+     */
+    private void freezeBefore(long epochDay) {
+        open.entrySet().removeIf(entry -> {
+            if (entry.getKey() < epochDay) {
+                frozen.put(LocalDate.ofEpochDay(entry.getKey()), entry.getValue().selection.getMedian());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * The bars of an open date and their median
+     */
+    private static class OpenDate {
+
+        /**
+         * Close of each bar applied, by epoch minute
+         */
+        private final Map<Long, Double> closes = new HashMap<>();
+
+        private MedianSelection selection = new MedianSelection();
+
+        /**
+         * Add a bar, or replace the bar at the same time and rebuild the median
+         * @param epochMinute the time of the bar
+         * @param close the close price of the bar
+         * @return true if the bar is new or revised
+         */
+        boolean apply(long epochMinute, double close) {
+            Double previous = closes.put(epochMinute, close);
+            if (previous == null) {
+                selection.add(close);
+                return true;
+            }
+            if (Double.compare(previous, close) == 0) {
+                return false;
+            }
+            selection = new MedianSelection();
+            selection.addAll(closes.values().stream().mapToDouble(Double::doubleValue).toArray());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package org.example;
+
+/**
+ * Select the k-th smallest element of a double array in place, in O(n) time and without allocation,
+ * or the weighted median of values paired with weights.
+ * It is a quickselect with median-of-three pivots and three-way partitioning, which falls back to
+ * heapsort when the partitions stop shrinking, so the worst case stays O(n log n).
+ * Values are ordered as by Double.compare, so NaN is the largest value.
+ */
+public final class IntroSelect {
+
+    /**
+     * Ranges shorter than this are sorted by insertion sort
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private IntroSelect() {
+    }
+
+    /**
+     * Rearrange a range so that the element at index k is the one that would be there if the range were sorted,
+     * with no greater element before it and no smaller element after it
+     * @param a the array
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @param k the index to select, between from and to
+     * @return the selected element
+     * @throws IllegalArgumentException if the range is empty or k is out of the range
+     */
+    public static double select(double[] a, int from, int to, int k) {
+        if (from < 0 || to > a.length || k < from || k >= to) {
+            throw new IllegalArgumentException("Illegal range [" + from + ", " + to + ") for index " + k);
+        }
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(to - from));
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSort(a, from, to);
+                return a[k];
+            }
+            double pivot = medianOfThree(a[from], a[(from + to) >>> 1], a[to - 1]);
+            // Three-way partition: [from, lt) < pivot, [lt, gt] == pivot, (gt, to) > pivot
+            int lt = from, i = from, gt = to - 1;
+            while (i <= gt) {
+                int cmp = Double.compare(a[i], pivot);
+                if (cmp < 0) {
+                    swap(a, lt++, i++);
+                } else if (cmp > 0) {
+                    swap(a, i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            if (k < lt) {
+                to = lt;
+            } else if (k > gt) {
+                from = gt + 1;
+            } else {
+                return a[k];
+            }
+        }
+        insertionSort(a, from, to);
+        return a[k];
+    }
+
+    /**
+     * Compute the median of an array in place
+     * @param a the array, which is reordered
+     * @return the median, the average of the two middle elements for an even length
+     * @throws IllegalArgumentException if the array is empty
+     */
+    public static double median(double[] a) {
+        return median(a, 0, a.length);
+    }
+
+    /**
+     * Compute the median of a range of an array in place
+     * @param a the array, whose range is reordered
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @return the median, the average of the two middle elements for an even length
+     * @throws IllegalArgumentException if the range is empty
+     */
+    public static double median(double[] a, int from, int to) {
+        return quantile(a, from, to, 0.5);
+    }
+
+    /**
+     * Compute a quantile of a range of an array in place, interpolating linearly between the two elements
+     * closest to the rank quantile * (n - 1), like QuantileAccumulator.getQuantile
+     * @param a the array, whose range is reordered
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @param quantile the quantile, between 0 and 1
+     * @return the value at the quantile
+     * @throws IllegalArgumentException if the range is empty or the quantile is not between 0 and 1
+     */
+    public static double quantile(double[] a, int from, int to, double quantile) {
+        MedianSelection.validateQuantile(quantile);
+        double rank = quantile * (to - from - 1);
+        int k = from + (int) rank;
+        double lower = select(a, from, to, k);
+        double fraction = rank - (int) rank;
+        if (fraction == 0 || k + 1 >= to) {
+            return lower;
+        }
+        // After selection every element after k is not smaller, so the next order statistic is their minimum
+        double upper = a[k + 1];
+        for (int i = k + 2; i < to; i++) {
+            if (Double.compare(a[i], upper) < 0) {
+                upper = a[i];
+            }
+        }
+        return lower + fraction * (upper - lower);
+    }
+
+    /**
+     * Compute the weighted median of a range of values in place, in O(n) expected time: the midpoint of the smallest
+     * value whose cumulative weight in ascending order reaches half the total weight and the smallest one whose
+     * cumulative weight exceeds it. They are the same value unless the cumulative weight reaches half exactly,
+     * so the weighted median of equally weighted values is their median.
+     * @param values the values, whose range is reordered
+     * @param weights the non-negative weights of the values, whose range is reordered with the values
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @return the weighted median
+     * @throws IllegalArgumentException if the range is empty, a weight is negative or NaN, or the total weight is zero
+     */
+    public static double weightedMedian(double[] values, double[] weights, int from, int to) {
+        if (from < 0 || to > values.length || to > weights.length || from >= to) {
+            throw new IllegalArgumentException("Illegal range [" + from + ", " + to + ")");
+        }
+        double total = 0;
+        for (int i = from; i < to; i++) {
+            if (!(weights[i] >= 0)) {
+                throw new IllegalArgumentException("Illegal weight " + weights[i] + " at index " + i);
+            }
+            total += weights[i];
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("Total weight must be positive");
+        }
+        double half = total / 2;
+        double lower = weightedSelect(values, weights, from, to, half, false);
+        double upper = weightedSelect(values, weights, from, to, half, true);
+        return lower == upper ? lower : (lower + upper) / 2;
+    }
+
+    /**
+     * Select the smallest value of a range whose cumulative weight in ascending order reaches the target
+     * @param values the values, whose range is reordered
+     * @param weights the weights of the values, whose range is reordered with the values
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @param target the cumulative weight to reach
+     * @param strict whether the cumulative weight has to exceed the target rather than reach it
+     * @return the selected value
+     */
+    private static double weightedSelect(double[] values, double[] weights, int from, int to, double target, boolean strict) {
+        // Weight of the values known to be smaller than the range
+        double below = 0;
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(to - from));
+        while (to - from > INSERTION_SORT_THRESHOLD && depthLimit-- > 0) {
+            double pivot = medianOfThree(values[from], values[(from + to) >>> 1], values[to - 1]);
+            int lt = from, i = from, gt = to - 1;
+            double less = 0, equal = 0;
+            while (i <= gt) {
+                int cmp = Double.compare(values[i], pivot);
+                if (cmp < 0) {
+                    less += weights[i];
+                    swap(values, weights, lt++, i++);
+                } else if (cmp > 0) {
+                    swap(values, weights, i, gt--);
+                } else {
+                    equal += weights[i];
+                    i++;
+                }
+            }
+            if (reaches(below + less, target, strict)) {
+                to = lt;
+            } else if (reaches(below + less + equal, target, strict)) {
+                return pivot;
+            } else {
+                below += less + equal;
+                from = gt + 1;
+            }
+        }
+        // Short or degenerate range: sort it and scan the cumulative weights
+        heapSort(values, weights, from, to);
+        for (int i = from; i < to; i++) {
+            below += weights[i];
+            if (reaches(below, target, strict)) {
+                return values[i];
+            }
+        }
+        // Only reached through rounding of the sums
+        return values[to - 1];
+    }
+
+    private static boolean reaches(double cumulative, double target, boolean strict) {
+        return strict ? cumulative > target : cumulative >= target;
+    }
+
+    /**
+     * Return the median of three values
+     */
+    private static double medianOfThree(double a, double b, double c) {
+        if (Double.compare(a, b) > 0) {
+            double tmp = a;
+            a = b;
+            b = tmp;
+        }
+        if (Double.compare(b, c) > 0) {
+            b = c;
+        }
+        return Double.compare(a, b) > 0 ? a : b;
+    }
+
+    /**
+     * Sort a short range by insertion sort
+     */
+    private static void insertionSort(double[] a, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            double value = a[i];
+            int j = i - 1;
+            while (j >= from && Double.compare(a[j], value) > 0) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    /**
+     * Sort a range by heapsort, used when quickselect degenerates
+     */
+    private static void heapSort(double[] a, int from, int to) {
+        int n = to - from;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(a, from, i, n);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(a, from, from + end);
+            siftDown(a, from, 0, end);
+        }
+    }
+
+    /**
+     * Sift down the element at index i of a max heap of size n stored from index offset
+     */
+    private static void siftDown(double[] a, int offset, int i, int n) {
+        double value = a[offset + i];
+        int half = n >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < n && Double.compare(a[offset + child + 1], a[offset + child]) > 0) {
+                child++;
+            }
+            if (Double.compare(a[offset + child], value) <= 0) {
+                break;
+            }
+            a[offset + i] = a[offset + child];
+            i = child;
+        }
+        a[offset + i] = value;
+    }
+
+    /**
+     * Sort a range of values and their weights together by heapsort
+     */
+    private static void heapSort(double[] values, double[] weights, int from, int to) {
+        int n = to - from;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(values, weights, from, i, n);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(values, weights, from, from + end);
+            siftDown(values, weights, from, 0, end);
+        }
+    }
+
+    /**
+     * Sift down the pair at index i of a max heap of values of size n stored from index offset
+     */
+    private static void siftDown(double[] values, double[] weights, int offset, int i, int n) {
+        int child;
+        while ((child = 2 * i + 1) < n) {
+            if (child + 1 < n && Double.compare(values[offset + child + 1], values[offset + child]) > 0) {
+                child++;
+            }
+            if (Double.compare(values[offset + child], values[offset + i]) <= 0) {
+                break;
+            }
+            swap(values, weights, offset + i, offset + child);
+            i = child;
+        }
+    }
+
+    /**
+     * Swap the pairs at indices i and j
+     */
+    private static void swap(double[] values, double[] weights, int i, int j) {
+        swap(values, i, j);
+        swap(weights, i, j);
+    }
+
+    /**
+     * Swap the elements at indices i and j
+     */
+    private static void swap(double[] a, int i, int j) {
+        double tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
+    }
+}
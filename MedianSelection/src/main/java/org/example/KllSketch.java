@@ -0,0 +1,324 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A KLL quantile sketch: an approximate quantile accumulator using bounded memory.
+ * Values are kept in levels of compactors; level h holds values of weight 2^h. When a level is full
+ * it is sorted and every other value, starting at a random offset, is promoted to the next level.
+ * Level capacities shrink geometrically towards the lower levels, so the sketch keeps about 3k values
+ * plus a few per level, whatever the length of the stream.
+ */
+public class KllSketch implements QuantileAccumulator, Mergeable<KllSketch> {
+
+    /**
+     * Default accuracy parameter, giving a rank error of about 1.3%
+     */
+    public static final int DEFAULT_K = 200;
+
+    /**
+     * Smallest accepted accuracy parameter, also the smallest capacity of a level
+     */
+    private static final int MIN_K = 8;
+
+    /**
+     * Ratio between the capacities of two consecutive levels
+     */
+    private static final double CAPACITY_RATIO = 2.0 / 3.0;
+
+    /**
+     * Accuracy parameter: capacity of the top level
+     */
+    private final int k;
+
+    /**
+     * Values of each level and the number of values used in each array
+     */
+    private double[][] levels;
+    private int[] levelSizes;
+    private int numLevels;
+
+    /**
+     * Number of values added, smallest and largest value added
+     */
+    private long count;
+    private double min = Double.NaN, max = Double.NaN;
+
+    /**
+     * Source of the offsets of compactions
+     */
+    private final Random random;
+
+    /**
+     * Construct a sketch with the default accuracy parameter
+     */
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * Construct a sketch with the given accuracy parameter
+     * @param k the accuracy parameter, the larger the more accurate and the more memory used
+     * @throws IllegalArgumentException if k is less than 8
+     */
+    public KllSketch(int k) {
+        this(k, new Random());
+    }
+
+    /**
+     * Construct a sketch with the given accuracy parameter and source of randomness
+     * @param k the accuracy parameter
+     * @param random the source of the offsets of compactions
+     * @throws IllegalArgumentException if k is less than 8
+     */
+    public KllSketch(int k, Random random) {
+        if (k < MIN_K) {
+            throw new IllegalArgumentException("k must be at least " + MIN_K + ": " + k);
+        }
+        this.k = k;
+        this.random = random;
+        this.levels = new double[][] {new double[k]};
+        this.levelSizes = new int[1];
+        this.numLevels = 1;
+    }
+
+    /**
+     * Construct a sketch with the smallest accuracy parameter whose rank error is at most the given one
+     * @param rankError the rank error, between 0 and 1
+     * @return a new sketch
+     * @throws IllegalArgumentException if rankError is not between 0 and 1
+     */
+    public static KllSketch forRankError(double rankError) {
+        if (!(rankError > 0 && rankError < 1)) {
+            throw new IllegalArgumentException("Rank error must be between 0 and 1: " + rankError);
+        }
+        int k = (int) Math.ceil(Math.pow(2.296 / rankError, 1 / 0.9723));
+        return new KllSketch(Math.max(MIN_K, k));
+    }
+
+    /**
+     * Rank error of a sketch with the given accuracy parameter, with 99% confidence.
+     * This is the empirical bound 2.296 / k^0.9723 of the KLL sketch.
+     * @param k the accuracy parameter
+     * @return the rank error
+     */
+    public static double rankErrorOf(int k) {
+        return 2.296 / Math.pow(k, 0.9723);
+    }
+
+    /**
+     * Add a new number to the sketch
+     * @param num The number to be added
+     */
+    @Override
+    public void add(double num) {
+        if (levelSizes[0] >= capacity(0)) {
+            compress();
+        }
+        append(0, num);
+        if (count == 0 || Double.compare(num, min) < 0) {
+            min = num;
+        }
+        if (count == 0 || Double.compare(num, max) > 0) {
+            max = num;
+        }
+        count++;
+    }
+
+    /**
+     * Get the approximate quantile of all the numbers added so far. While no level has been compacted
+     * the sketch still holds every value and the quantile is exact.
+     * @param quantile the quantile, between 0 and 1
+     * @return the value at the quantile
+     */
+    @Override
+    public double getQuantile(double quantile) {
+        MedianSelection.validateQuantile(quantile);
+        if (count == 0) {
+            throw new IllegalArgumentException("No value has been added");
+        }
+        if (quantile == 0) {
+            return min;
+        }
+        if (quantile == 1) {
+            return max;
+        }
+        if (numLevels == 1) {
+            double[] sorted = Arrays.copyOf(levels[0], levelSizes[0]);
+            Arrays.sort(sorted);
+            return MedianSelection.quantileOfSorted(sorted, sorted.length, quantile);
+        }
+        // Merge the sorted levels into one sorted array of values with their weights
+        double[] values = new double[0];
+        long[] weights = new long[0];
+        for (int h = 0; h < numLevels; h++) {
+            double[] level = Arrays.copyOf(levels[h], levelSizes[h]);
+            Arrays.sort(level);
+            double[] mergedValues = new double[values.length + level.length];
+            long[] mergedWeights = new long[mergedValues.length];
+            int i = 0, j = 0;
+            for (int m = 0; m < mergedValues.length; m++) {
+                if (j == level.length || (i < values.length && Double.compare(values[i], level[j]) <= 0)) {
+                    mergedValues[m] = values[i];
+                    mergedWeights[m] = weights[i++];
+                } else {
+                    mergedValues[m] = level[j++];
+                    mergedWeights[m] = 1L << h;
+                }
+            }
+            values = mergedValues;
+            weights = mergedWeights;
+        }
+        double rank = quantile * (count - 1);
+        long cumulative = 0;
+        for (int i = 0; i < values.length; i++) {
+            cumulative += weights[i];
+            if (cumulative > rank) {
+                return values[i];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Merge another sketch into this one. Each level of the other sketch is appended to the same level
+     * of this one before compacting, so the result keeps the rank error of a sketch built over both streams.
+     * @param other the sketch to merge into this one
+     * @throws IllegalArgumentException if the sketches have different accuracy parameters
+     */
+    @Override
+    public void merge(KllSketch other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge sketches with different k: " + k + " and " + other.k);
+        }
+        if (other.count == 0) {
+            return;
+        }
+        int otherLevels = other.numLevels;
+        double[][] otherValues = new double[otherLevels][];
+        for (int h = 0; h < otherLevels; h++) {
+            otherValues[h] = Arrays.copyOf(other.levels[h], other.levelSizes[h]);
+        }
+        while (numLevels < otherLevels) {
+            addLevel();
+        }
+        for (int h = 0; h < otherLevels; h++) {
+            for (double num : otherValues[h]) {
+                append(h, num);
+            }
+        }
+        if (count == 0 || Double.compare(other.min, min) < 0) {
+            min = other.min;
+        }
+        if (count == 0 || Double.compare(other.max, max) > 0) {
+            max = other.max;
+        }
+        count += other.count;
+        compress();
+    }
+
+    /**
+     * Return the number of values added to the sketch
+     * @return the number of values
+     */
+    @Override
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Return the rank error of this sketch, with 99% confidence
+     * @return the rank error
+     */
+    @Override
+    public double getRankError() {
+        return rankErrorOf(k);
+    }
+
+    /**
+     * Return the accuracy parameter of this sketch
+     * @return k
+     */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Return the number of values retained by the sketch
+     * @return the number of values retained
+     */
+    public int getRetained() {
+        int retained = 0;
+        for (int h = 0; h < numLevels; h++) {
+            retained += levelSizes[h];
+        }
+        return retained;
+    }
+
+    /**
+     * Capacity of a level given the current number of levels
+     * @param h the level
+     * @return the capacity of the level
+     */
+    private int capacity(int h) {
+        int depth = numLevels - 1 - h;
+        return Math.max(MIN_K, (int) Math.ceil(k * Math.pow(CAPACITY_RATIO, depth)));
+    }
+
+    /**
+     * Compact every level that reached its capacity, from the lowest one upwards
+     */
+    private void compress() {
+        for (int h = 0; h < numLevels; h++) {
+            if (levelSizes[h] >= capacity(h)) {
+                if (h == numLevels - 1) {
+                    addLevel();
+                }
+                compact(h);
+            }
+        }
+    }
+
+    /**
+     * Sort a level and promote every other value to the next level. When the level holds an odd number
+     * of values, its smallest value stays in the level.
+     * @param h the level to compact
+     */
+    private void compact(int h) {
+        double[] level = levels[h];
+        int size = levelSizes[h];
+        Arrays.sort(level, 0, size);
+        int start = size % 2;
+        int offset = random.nextBoolean() ? 1 : 0;
+        for (int i = start + offset; i < size; i += 2) {
+            append(h + 1, level[i]);
+        }
+        levelSizes[h] = start;
+    }
+
+    /**
+     * Append a value to a level, growing its array if needed
+     * @param h the level
+     * @param num the value
+     */
+    private void append(int h, double num) {
+        if (levelSizes[h] == levels[h].length) {
+            levels[h] = Arrays.copyOf(levels[h], Math.max(MIN_K, levels[h].length * 2));
+        }
+        levels[h][levelSizes[h]++] = num;
+    }
+
+    /**
+     * Add an empty level on top of the existing ones
+     */
+    private void addLevel() {
+        if (numLevels == levels.length) {
+            levels = Arrays.copyOf(levels, numLevels * 2);
+            levelSizes = Arrays.copyOf(levelSizes, numLevels * 2);
+        }
+        levels[numLevels] = new double[MIN_K];
+        levelSizes[numLevels] = 0;
+        numLevels++;
+    }
+}
@@ -0,0 +1,136 @@
+package org.example;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A MetricsRegistry keeping each counter in a LongAdder, so that threads reporting at once do not contend.
+ * It is also a DynamicMBean with one long attribute per MetricKey and a reset operation, to be read through JMX.
+ */
+public class LongAdderMetricsRegistry implements MetricsRegistry, DynamicMBean {
+
+    /**
+     * Default name of the MBean
+     */
+    public static final String OBJECT_NAME = "org.example:type=MedianSelectionMetrics";
+
+    /**
+     * Declare counters, indexed by the ordinal of their key
+     */
+    private final LongAdder[] counters = new LongAdder[MetricKey.values().length];
+
+    /**
+     * Constructor for LongAdderMetricsRegistry class
+     */
+    public LongAdderMetricsRegistry() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void add(MetricKey key, long value) {
+        counters[key.ordinal()].add(value);
+    }
+
+    @Override
+    public long get(MetricKey key) {
+        return counters[key.ordinal()].sum();
+    }
+
+    /**
+     * Return the current values of all the counters
+     * @return the map of counters and their values
+     */
+    public Map<MetricKey, Long> snapshot() {
+        Map<MetricKey, Long> snapshot = new EnumMap<>(MetricKey.class);
+        for (MetricKey key : MetricKey.values()) {
+            snapshot.put(key, get(key));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Reset all the counters to 0
+     */
+    public void reset() {
+        for (LongAdder counter : counters) {
+            counter.reset();
+        }
+    }
+
+    /**
+     * Register the registry in the platform MBean server under OBJECT_NAME
+     * @throws JMException if the registry cannot be registered, e.g. if another one already is
+     */
+    public void registerMBean() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        try {
+            return get(MetricKey.valueOf(attribute));
+        } catch (IllegalArgumentException e) {
+            throw new AttributeNotFoundException(attribute);
+        }
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Counters are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Unknown attributes are left out, as the contract of DynamicMBean allows
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if (!"reset".equals(actionName)) {
+            throw new ReflectionException(new NoSuchMethodException(actionName), "Unknown operation " + actionName);
+        }
+        reset();
+        return null;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        MetricKey[] keys = MetricKey.values();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            attributes[i] = new MBeanAttributeInfo(keys[i].name(), "long", keys[i].name(), true, false, false);
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Reset all the counters to 0",
+                new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "Counters of the median pipeline", attributes, null,
+                new MBeanOperationInfo[] {reset}, null);
+    }
+}
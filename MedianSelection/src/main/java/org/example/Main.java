@@ -1,17 +1,33 @@
 package org.example;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The Main class is responsible for running the program and generating a stock price chart.
  */
 public class Main {
 
+    /**
+     * Logger of the symbols whose charts could not be saved
+     */
+    private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
+
     /**
      * The main method is the entry point of the program and is responsible for calling other methods to fetch data and generate the chart.
-     * @param args An array of command-line arguments passed to the program
+     * @param args An array of command-line arguments passed to the program, --live to keep the chart up to date,
+     *             or --render followed by a directory and symbols to save their charts as PNG files without a display,
+     *             exiting with status 1 if the chart of any symbol could not be fetched or saved
      * @throws IOException If an error occurs when fetching data.
      */
     public static void main(String[] args) throws IOException {
@@ -26,6 +42,36 @@ public class Main {
                 DataStreamHandle.OutputSize.FULL
         );
 
+        if (args.length > 2 && args[0].equals("--render")) {
+            System.setProperty("java.awt.headless", "true");
+            SymbolFetchScheduler fetchScheduler = new SymbolFetchScheduler(null, apiKey, DataStreamHandle.Interval.THIRTY_MIN,
+                    DataStreamHandle.OutputSize.FULL, new TokenBucket(5), 3, Duration.ofSeconds(15), ForkJoinPool.commonPool());
+            SymbolFetchScheduler.Result fetched = fetchScheduler.fetchMedians(Arrays.asList(args).subList(2, args.length));
+            ChartBatchRenderer renderer = new ChartBatchRenderer(Path.of(args[1]), DrawChart.Format.PNG, 1200, 600, "Date", "Price");
+            ExecutorService workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            ChartBatchRenderer.Result rendered;
+            try {
+                rendered = renderer.render(fetched.getMedians(), workers);
+            } finally {
+                workers.shutdown();
+            }
+            fetched.getFailures().forEach((symbol, failure) -> LOGGER.log(Level.SEVERE, "Cannot fetch " + symbol, failure));
+            rendered.getFailures().forEach((symbol, failure) -> LOGGER.log(Level.SEVERE, "Cannot save the chart of " + symbol, failure));
+            if (!fetched.getFailures().isEmpty() || !rendered.getFailures().isEmpty()) {
+                System.exit(1);
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--live")) {
+            // Poll the API once per interval and update the chart in place when a median changes
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+            DrawChart drawChart = new DrawChart(symbolName, Map.of(), "Stock Price Chart", "Date", "Price");
+            dataStreamHandle.publishMedians(scheduler, drawChart.newSubscriber());
+            drawChart.showChart("My Chart");
+            return;
+        }
+
         // Get the median stock price data
         Map<LocalDate, Double> data = dataStreamHandle.getMedian();
 
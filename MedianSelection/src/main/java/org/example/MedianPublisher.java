@@ -0,0 +1,233 @@
+package org.example;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Push the daily medians of a series to subscribers as new bars arrive. Bars are either polled from a source
+ * on a fixed cadence, usually the interval of the series, or pushed to onBar() by a live source; both are applied
+ * to an IncrementalMedianStore, and an update is published only for the dates whose median changed or which
+ * were finalized. Updates are delivered through a SubmissionPublisher: a subscriber that requests less than it is
+ * offered fills its buffer, after which publishing blocks, so the slowest subscriber throttles the ingestion
+ * instead of updates being dropped.
+ */
+public class MedianPublisher implements Flow.Publisher<MedianPublisher.Update>, BarHandler, AutoCloseable {
+
+    /**
+     * Logger of the failed polls
+     */
+    private static final Logger LOGGER = Logger.getLogger(MedianPublisher.class.getName());
+
+    /**
+     * Source polled for new bars, null when the bars are only pushed
+     */
+    private final DataSource source;
+
+    /**
+     * Declare store
+     */
+    private final IncrementalMedianStore store = new IncrementalMedianStore();
+
+    /**
+     * Last median published for each open date
+     */
+    private final Map<LocalDate, Double> published = new HashMap<>();
+
+    /**
+     * Latest date published as final, null if none
+     */
+    private LocalDate lastFinal;
+
+    /**
+     * Declare publisher
+     */
+    private final SubmissionPublisher<Update> publisher;
+
+    /**
+     * The scheduled polling, null until start() is called
+     */
+    private volatile ScheduledFuture<?> polling;
+
+    /**
+     * Constructor for MedianPublisher class
+     * @param source the source polled for new bars, in any order and possibly repeated, or null if the bars are only pushed
+     * @param executor the executor delivering the updates to the subscribers, e.g. ForkJoinPool.commonPool()
+     * @param bufferCapacity the number of updates buffered for each subscriber before publishing blocks
+     * @throws IllegalArgumentException if bufferCapacity is not positive
+     */
+    public MedianPublisher(DataSource source, Executor executor, int bufferCapacity) {
+        if (bufferCapacity <= 0) {
+            throw new IllegalArgumentException("Buffer capacity must be positive: " + bufferCapacity);
+        }
+        this.source = source;
+        this.publisher = new SubmissionPublisher<>(executor, bufferCapacity);
+    }
+
+    /**
+     * Subscribe to the updates published from now on
+     * @param subscriber the subscriber
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super Update> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Poll the source on a fixed cadence, starting immediately. A failed poll, whether the source cannot be read or
+     * anything else goes wrong, is logged and retried at the next tick, so polling never stops silently.
+     * @param scheduler the scheduler running the polls
+     * @param period the time between the end of a poll and the start of the next one, e.g. interval.toDuration()
+     * @throws IllegalStateException if there is no source, or polling has already started or the publisher is closed
+     */
+    public synchronized void start(ScheduledExecutorService scheduler, Duration period) {
+        if (source == null) {
+            throw new IllegalStateException("No source to poll");
+        }
+        if (polling != null || publisher.isClosed()) {
+            throw new IllegalStateException("Polling has already started or the publisher is closed");
+        }
+        polling = scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (IOException | RuntimeException e) {
+                // An exception escaping the task would cancel it without a trace
+                LOGGER.log(Level.WARNING, "Poll failed", e);
+            }
+        }, 0, period.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Read the source once, apply the new bars and publish the medians that changed
+     * @return the number of updates published
+     * @throws IOException if the source cannot be read
+     */
+    public synchronized int poll() throws IOException {
+        if (store.refresh(source) == 0) {
+            return 0;
+        }
+        return publishChanges();
+    }
+
+    /**
+     * Apply a bar pushed by a live source and publish the medians that changed. A bar revising the close of a bar
+     * applied replaces it; bars repeating a bar applied, or of frozen dates, are ignored.
+     * @param epochMinute the time of the bar
+     * @param close the close price of the bar
+     */
+    @Override
+    public synchronized void onBar(long epochMinute, double close) {
+        if (store.isFrozen(epochMinute) || !store.apply(epochMinute, close)) {
+            return;
+        }
+        publishChanges();
+    }
+
+    /**
+     * Get the median of every date applied so far
+     * @return the map of local dates, in ascending order, and corresponding median prices
+     */
+    public synchronized Map<LocalDate, Double> getMedians() {
+        return store.getMedians();
+    }
+
+    /**
+     * Return the number of current subscribers
+     * @return the number of subscribers
+     */
+    public int getSubscriberCount() {
+        return publisher.getNumberOfSubscribers();
+    }
+
+    /**
+     * Stop polling and complete every subscription once the updates already published are delivered.
+     * It does not wait for a poll blocked on a full buffer, which is released by closing the publisher.
+     */
+    @Override
+    public void close() {
+        if (polling != null) {
+            polling.cancel(false);
+        }
+        publisher.close();
+    }
+
+    /**
+     * Publish the dates finalized since the previous call, then the open dates whose median changed
+     * @return the number of updates published
+     */
+    private int publishChanges() {
+        int updates = 0;
+        Map<LocalDate, Double> finalized = lastFinal == null ? store.getFrozenMedians() : store.getFrozenMedians().tailMap(lastFinal, false);
+        for (Map.Entry<LocalDate, Double> entry : finalized.entrySet()) {
+            published.remove(entry.getKey());
+            publisher.submit(new Update(entry.getKey(), entry.getValue(), true));
+            lastFinal = entry.getKey();
+            updates++;
+        }
+        for (Map.Entry<LocalDate, Double> entry : store.getOpenMedians().entrySet()) {
+            Double previous = published.put(entry.getKey(), entry.getValue());
+            if (previous == null || Double.compare(previous, entry.getValue()) != 0) {
+                publisher.submit(new Update(entry.getKey(), entry.getValue(), false));
+                updates++;
+            }
+        }
+        return updates;
+    }
+
+    /**
+     * A change of the median of a date
+     */
+    public static class Update {
+
+        private final LocalDate date;
+
+        private final double median;
+
+        private final boolean isFinal;
+
+        Update(LocalDate date, double median, boolean isFinal) {
+            this.date = date;
+            this.median = median;
+            this.isFinal = isFinal;
+        }
+
+        /**
+         * Return the date whose median changed
+         * @return the local date
+         */
+        public LocalDate getDate() {
+            return date;
+        }
+
+        /**
+         * Return the new median of the date
+         * @return the median price
+         */
+        public double getMedian() {
+            return median;
+        }
+
+        /**
+         * Check whether the date is finalized, so that its median will not change again
+         * @return true if a later date has started
+         */
+        public boolean isFinal() {
+            return isFinal;
+        }
+
+        @Override
+        public String toString() {
+            return date + "=" + median + (isFinal ? " (final)" : "");
+        }
+    }
+}
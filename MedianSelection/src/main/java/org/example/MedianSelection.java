@@ -1,31 +1,46 @@
 package org.example;
 
-import java.util.Comparator;
+import java.util.stream.DoubleStream;
 
 /**
  * Compute the median of a stream of Double
  */
-public class MedianSelection{
+public class MedianSelection implements QuantileAccumulator, Mergeable<MedianSelection> {
 
     /**
      * Declare minHeap, maxHeap
      */
-    private HeapPriorityQueue minHeap, maxHeap;
+    private DoublePriorityQueue minHeap, maxHeap;
 
     /**
      * Constructor for MedianSelection class
-     * Construct a new MedianSelection object with an empty min heap and max heap.
+     * Construct a new MedianSelection object with an empty min heap and max heap,
+     * both backed by primitive double arrays.
      */
     public MedianSelection() {
-        minHeap = new HeapPriorityQueue();
-        maxHeap = new HeapPriorityQueue(Comparator.reverseOrder());
+        this(new PrimitiveHeapPriorityQueue(PrimitiveHeapPriorityQueue.Order.MIN),
+                new PrimitiveHeapPriorityQueue(PrimitiveHeapPriorityQueue.Order.MAX));
+    }
+
+    /**
+     * Construct a new MedianSelection object on the given empty heaps
+     * @param minHeap an empty heap whose head is its smallest element
+     * @param maxHeap an empty heap whose head is its largest element
+     * @throws IllegalArgumentException if either heap is not empty
+     */
+    public MedianSelection(DoublePriorityQueue minHeap, DoublePriorityQueue maxHeap) {
+        if (!minHeap.isEmpty() || !maxHeap.isEmpty()) {
+            throw new IllegalArgumentException("Heaps must be empty");
+        }
+        this.minHeap = minHeap;
+        this.maxHeap = maxHeap;
     }
 
     /**
      * Return the minimum heap containing the values
      * @return the minimum heap
      */
-    public HeapPriorityQueue getMinHeap() {
+    public DoublePriorityQueue getMinHeap() {
         return minHeap;
     }
 
@@ -33,7 +48,7 @@ public class MedianSelection{
      * Returns the maximum heap containing the values
      * @return the maximum heap
      */
-    public HeapPriorityQueue getMaxHeap() {
+    public DoublePriorityQueue getMaxHeap() {
         return maxHeap;
     }
 
@@ -41,6 +56,7 @@ public class MedianSelection{
      * Add a new number to the heap
      * @param num The number to be added to the heap
      */
+    @Override
     public void add(double num) {
         // If the value of the element is less than or equal to the top element of the max heap, put it in the max heap
         if (!minHeap.isEmpty() && num < minHeap.peek()) {
@@ -51,18 +67,63 @@ public class MedianSelection{
         balance();
     }
 
+    /**
+     * Add numbers in bulk. When they are at least as many as the numbers already added, all the numbers are split
+     * at the median by IntroSelect and each half is heapified in linear time, instead of adding them one by one.
+     * The MedianSelection keeps streaming afterwards.
+     * @param nums the numbers to be added
+     */
+    public void addAll(double[] nums) {
+        int count = minHeap.size() + maxHeap.size();
+        if (nums.length < count) {
+            for (double num : nums) {
+                add(num);
+            }
+            return;
+        }
+        double[] values = new double[count + nums.length];
+        double[] lower = maxHeap.toArray();
+        System.arraycopy(lower, 0, values, 0, lower.length);
+        double[] upper = minHeap.toArray();
+        System.arraycopy(upper, 0, values, lower.length, upper.length);
+        System.arraycopy(nums, 0, values, count, nums.length);
+        int half = values.length / 2;
+        if (half > 0) {
+            // No value before index half is greater than a value after it
+            IntroSelect.select(values, 0, values.length, half);
+        }
+        maxHeap.clear();
+        minHeap.clear();
+        maxHeap.addAll(values, 0, half);
+        minHeap.addAll(values, half, values.length);
+    }
+
+    /**
+     * Add the numbers of a stream in bulk
+     * @param nums the stream of numbers to be added
+     */
+    public void addAll(DoubleStream nums) {
+        addAll(nums.toArray());
+    }
+
     /**
      * Balance the size of the min and max heaps by comparing the number of numbers in the heaps
      */
     public void balance() {
+        int moves = 0;
         // Check the number of elements in the max heap and min heap, and if the difference between their number of elements is greater than 1, balancing operation is needed
         while (maxHeap.size() > minHeap.size() + 1) {
             // Move the root element of the max heap to the min heap
             minHeap.add(maxHeap.remove());
+            moves++;
         }
         while (minHeap.size() > maxHeap.size() + 1) {
             // Move the root element of the min heap to the max heap
             maxHeap.add(minHeap.remove());
+            moves++;
+        }
+        if (moves > 0) {
+            Metrics.add(MetricKey.REBALANCE_MOVES, moves);
         }
     }
 
@@ -70,6 +131,7 @@ public class MedianSelection{
      * Get the median of all the numbers obtained from the data stream
      * @return The median of the numbers currently
      */
+    @Override
     public double getMedian() {
         double median;
         if (minHeap.size() < maxHeap.size()) {
@@ -81,4 +143,91 @@ public class MedianSelection{
         }
         return median;
     }
+
+    /**
+     * Get the quantile of all the numbers obtained from the data stream, exactly.
+     * The median is answered from the heads of the heaps, any other quantile by selecting in a copy of the heaps.
+     * @param quantile the quantile, between 0 and 1
+     * @return the value at the quantile
+     */
+    @Override
+    public double getQuantile(double quantile) {
+        validateQuantile(quantile);
+        if (quantile == 0.5) {
+            return getMedian();
+        }
+        double[] values = new double[minHeap.size() + maxHeap.size()];
+        if (values.length == 0) {
+            throw new IllegalArgumentException("No value has been added");
+        }
+        double[] lower = maxHeap.toArray();
+        System.arraycopy(lower, 0, values, 0, lower.length);
+        double[] upper = minHeap.toArray();
+        System.arraycopy(upper, 0, values, lower.length, upper.length);
+        return IntroSelect.quantile(values, 0, values.length, quantile);
+    }
+
+    /**
+     * Merge the numbers of another MedianSelection into this one, so that this one gives
+     * the exact median of both streams
+     * @param other the MedianSelection to merge into this one
+     */
+    @Override
+    public void merge(MedianSelection other) {
+        for (double num : other.maxHeap.toArray()) {
+            add(num);
+        }
+        for (double num : other.minHeap.toArray()) {
+            add(num);
+        }
+    }
+
+    /**
+     * Return the number of numbers obtained from the data stream
+     * @return the number of numbers
+     */
+    @Override
+    public long getCount() {
+        return minHeap.size() + maxHeap.size();
+    }
+
+    /**
+     * The quantiles are exact
+     * @return 0
+     */
+    @Override
+    public double getRankError() {
+        return 0;
+    }
+
+    /**
+     * Interpolate the quantile of the first n values of a sorted array between the values closest to rank quantile * (n - 1)
+     * @param sorted the values in ascending order
+     * @param n the number of values to use
+     * @param quantile the quantile, between 0 and 1
+     * @return the value at the quantile
+     */
+    static double quantileOfSorted(double[] sorted, int n, double quantile) {
+        double rank = quantile * (n - 1);
+        int lower = (int) rank;
+        if (lower >= n - 1) {
+            return sorted[n - 1];
+        }
+        double fraction = rank - lower;
+        if (fraction == 0) {
+            return sorted[lower];
+        }
+        return sorted[lower] + fraction * (sorted[lower + 1] - sorted[lower]);
+    }
+
+    /**
+     * Validate that the quantile is between 0 and 1
+     * @param quantile the quantile to validate
+     * @throws IllegalArgumentException if the quantile is not between 0 and 1
+     */
+    static void validateQuantile(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+        }
+    }
 }
@@ -0,0 +1,15 @@
+package org.example;
+
+/**
+ * A state that can absorb another state of the same kind, so that states built over
+ * disjoint partitions of a stream can be combined into the state of the whole stream.
+ * @param <T> the type of state that can be merged
+ */
+public interface Mergeable<T> {
+
+    /**
+     * Merge the other state into this one. The other state is left unchanged.
+     * @param other the state to merge into this one
+     */
+    void merge(T other);
+}
@@ -0,0 +1,55 @@
+package org.example;
+
+/**
+ * The counters of the median pipeline. Times are in nanoseconds, so a mean is a time counter
+ * divided by its count, e.g. PARSE_NANOS / BARS_PARSED is the parse time per bar.
+ */
+public enum MetricKey {
+
+    /**
+     * Number of API calls, and their latency until the whole response is read, or until it starts for a response
+     * parsed as it streams, whose reading is then counted in PARSE_NANOS
+     */
+    FETCHES,
+    FETCH_NANOS,
+
+    /**
+     * Number of characters of the responses parsed, equal to their bytes for the ASCII responses of the API
+     */
+    BYTES_READ,
+
+    /**
+     * Number of bars parsed, and the time spent parsing them
+     */
+    BARS_PARSED,
+    PARSE_NANOS,
+
+    /**
+     * Number of levels an element moved by the heaps when added and removed
+     */
+    SIFT_UP_STEPS,
+    SIFT_DOWN_STEPS,
+
+    /**
+     * Number of heads moved between the two heaps of MedianSelection to balance them
+     */
+    REBALANCE_MOVES,
+
+    /**
+     * Number of per-date medians computed, and the time spent computing them
+     */
+    MEDIANS_COMPUTED,
+    MEDIAN_NANOS,
+
+    /**
+     * Number of backing arrays grown by the heaps and series, and the bytes of the new arrays
+     */
+    ARRAY_GROWTHS,
+    BYTES_ALLOCATED,
+
+    /**
+     * Number of charts saved by ChartBatchRenderer, and the time spent drawing and writing them
+     */
+    CHARTS_RENDERED,
+    RENDER_NANOS
+}
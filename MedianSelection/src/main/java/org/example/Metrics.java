@@ -0,0 +1,76 @@
+package org.example;
+
+/**
+ * The holder of the MetricsRegistry the pipeline reports to. It is disabled by default:
+ * reporting then costs one read of a volatile field, and the instrumented code skips its timers.
+ */
+public final class Metrics {
+
+    /**
+     * Declare registry
+     */
+    private static volatile MetricsRegistry registry = MetricsRegistry.NOOP;
+
+    private Metrics() {
+    }
+
+    /**
+     * Install a registry, or MetricsRegistry.NOOP to disable the metrics
+     * @param registry the registry receiving the values from now on
+     */
+    public static void setRegistry(MetricsRegistry registry) {
+        Metrics.registry = registry == null ? MetricsRegistry.NOOP : registry;
+    }
+
+    /**
+     * Return the installed registry
+     * @return the registry, MetricsRegistry.NOOP when disabled
+     */
+    public static MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Check whether a registry is installed, e.g. before reading a clock
+     * @return true if the metrics are enabled
+     */
+    public static boolean isEnabled() {
+        return registry != MetricsRegistry.NOOP;
+    }
+
+    /**
+     * Add a value to a counter of the installed registry, if any
+     * @param key the counter
+     * @param value the value to add
+     */
+    public static void add(MetricKey key, long value) {
+        MetricsRegistry current = registry;
+        if (current != MetricsRegistry.NOOP) {
+            current.add(key, value);
+        }
+    }
+
+    /**
+     * Return the current time for a timer, or 0 without reading the clock when the metrics are disabled
+     * @return the current time in nanoseconds
+     */
+    static long startTimer() {
+        return registry != MetricsRegistry.NOOP ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Add the time elapsed since a timer started to a counter, and one to the counter of its count, if any
+     * @param count the counter of the number of timings, or null
+     * @param nanos the counter of the time
+     * @param start the value returned by startTimer
+     */
+    static void stopTimer(MetricKey count, MetricKey nanos, long start) {
+        MetricsRegistry current = registry;
+        if (current != MetricsRegistry.NOOP && start != 0) {
+            current.add(nanos, System.nanoTime() - start);
+            if (count != null) {
+                current.add(count, 1);
+            }
+        }
+    }
+}
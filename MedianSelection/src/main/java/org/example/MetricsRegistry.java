@@ -0,0 +1,35 @@
+package org.example;
+
+/**
+ * A registry of the counters of MetricKey, installed with Metrics.setRegistry
+ */
+public interface MetricsRegistry {
+
+    /**
+     * The registry of the disabled mode, which drops every value. Metrics does not even call it.
+     */
+    MetricsRegistry NOOP = new MetricsRegistry() {
+        @Override
+        public void add(MetricKey key, long value) {
+        }
+
+        @Override
+        public long get(MetricKey key) {
+            return 0;
+        }
+    };
+
+    /**
+     * Add a value to a counter. It is called concurrently from the threads of the pipeline.
+     * @param key the counter
+     * @param value the value to add
+     */
+    void add(MetricKey key, long value);
+
+    /**
+     * Return the current value of a counter
+     * @param key the counter
+     * @return the sum of the values added
+     */
+    long get(MetricKey key);
+}
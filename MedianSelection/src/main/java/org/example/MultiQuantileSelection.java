@@ -0,0 +1,379 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Compute several quantiles of a stream of double values exactly in one pass, with one chain of k + 1 heaps
+ * for k quantiles. The heaps are split at the ranks of the quantiles in ascending order: the j-th heap holds the
+ * values ranked after the (j - 1)-th quantile and up to the j-th one, so each value is kept once, and an add
+ * inserts into one heap and then moves at most one value across each split. Each quantile is answered from the
+ * largest value below its split and the smallest one above it, without sorting.
+ */
+public class MultiQuantileSelection implements QuantileAccumulator, Mergeable<MultiQuantileSelection> {
+
+    /**
+     * Declare quantiles, in the order given
+     */
+    private final double[] quantiles;
+
+    /**
+     * Index of each quantile given among the quantiles in ascending order
+     */
+    private final int[] splits;
+
+    /**
+     * Quantiles in ascending order
+     */
+    private final double[] sorted;
+
+    /**
+     * Declare segments, the k + 1 heaps of the chain, every value of one being less than or equal to every value of the next
+     */
+    private final Segment[] segments;
+
+    /**
+     * Declare count
+     */
+    private int count;
+
+    /**
+     * Constructor for MultiQuantileSelection class
+     * @param quantiles the quantiles to track, each between 0 and 1
+     * @throws IllegalArgumentException if no quantile is given or one is not between 0 and 1
+     */
+    public MultiQuantileSelection(double... quantiles) {
+        if (quantiles.length == 0) {
+            throw new IllegalArgumentException("No quantile to track");
+        }
+        for (double quantile : quantiles) {
+            MedianSelection.validateQuantile(quantile);
+        }
+        this.quantiles = quantiles.clone();
+        this.sorted = quantiles.clone();
+        Arrays.sort(sorted);
+        this.splits = new int[quantiles.length];
+        boolean[] taken = new boolean[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) {
+            int split = Arrays.binarySearch(sorted, quantiles[i]);
+            // Equal quantiles get consecutive splits
+            while (split > 0 && sorted[split - 1] == quantiles[i]) {
+                split--;
+            }
+            while (taken[split]) {
+                split++;
+            }
+            taken[split] = true;
+            splits[i] = split;
+        }
+        segments = new Segment[quantiles.length + 1];
+        for (int j = 0; j < segments.length; j++) {
+            segments[j] = new Segment();
+        }
+    }
+
+    /**
+     * Add a new number to the heap of its range, then move one value across each split whose rank has changed
+     * @param num The number to be added
+     */
+    @Override
+    public void add(double num) {
+        int target = segments.length - 1;
+        for (int j = 0; j < segments.length - 1; j++) {
+            if (!segments[j].isEmpty() && Double.compare(num, segments[j].peekMax()) <= 0) {
+                target = j;
+                break;
+            }
+        }
+        segments[target].add(num);
+        count++;
+        balance();
+    }
+
+    /**
+     * Move values across the splits until the j-th split has the values up to the rank of the j-th quantile below it.
+     * Each target grows by at most one per added value and a move across a split changes the number of values below
+     * that split only, so at most one value moves across each split. Values move up from the lowest split and down
+     * from the highest one, so that the heap they are taken from is never empty, even between quantiles of equal rank.
+     */
+    private void balance() {
+        int below = 0;
+        for (int j = 0; j < sorted.length; j++) {
+            below += segments[j].size();
+            if (below > target(j)) {
+                segments[j + 1].add(segments[j].removeMax());
+                below--;
+            }
+        }
+        int above = 0;
+        for (int j = sorted.length - 1; j >= 0; j--) {
+            above += segments[j + 1].size();
+            if (count - above < target(j)) {
+                segments[j].add(segments[j + 1].removeMin());
+                above--;
+            }
+        }
+    }
+
+    /**
+     * Return the number of values up to the rank of a quantile
+     * @param split the index of the quantile among the quantiles in ascending order
+     * @return floor(quantile * (count - 1)) + 1
+     */
+    private int target(int split) {
+        return (int) (sorted[split] * (count - 1)) + 1;
+    }
+
+    /**
+     * Get the values at the tracked quantiles
+     * @return the values, in the order the quantiles were given
+     * @throws IllegalArgumentException if nothing has been added
+     */
+    public double[] getQuantiles() {
+        double[] values = new double[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) {
+            values[i] = getValue(splits[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Get the value at a tracked quantile from the heads of the heaps around its split
+     * @param split the index of the quantile among the quantiles in ascending order
+     * @return the value at the quantile
+     * @throws IllegalArgumentException if nothing has been added
+     */
+    private double getValue(int split) {
+        if (count == 0) {
+            throw new IllegalArgumentException("No value has been added");
+        }
+        // The values up to the rank are never all in empty heaps
+        int lowerSegment = split;
+        while (segments[lowerSegment].isEmpty()) {
+            lowerSegment--;
+        }
+        double lower = segments[lowerSegment].peekMax();
+        double rank = sorted[split] * (count - 1);
+        double fraction = rank - (int) rank;
+        if (fraction == 0) {
+            return lower;
+        }
+        int upperSegment = split + 1;
+        while (upperSegment < segments.length && segments[upperSegment].isEmpty()) {
+            upperSegment++;
+        }
+        if (upperSegment == segments.length) {
+            return lower;
+        }
+        return lower + fraction * (segments[upperSegment].peekMin() - lower);
+    }
+
+    /**
+     * Get the quantile of all the numbers added so far, exactly.
+     * A tracked quantile is answered from the heads of the heaps, any other by selecting in a copy of the heaps.
+     * @param quantile the quantile, between 0 and 1
+     * @return the value at the quantile
+     */
+    @Override
+    public double getQuantile(double quantile) {
+        MedianSelection.validateQuantile(quantile);
+        int split = Arrays.binarySearch(sorted, quantile);
+        if (split >= 0) {
+            return getValue(split);
+        }
+        if (count == 0) {
+            throw new IllegalArgumentException("No value has been added");
+        }
+        return IntroSelect.quantile(toArray(), 0, count, quantile);
+    }
+
+    /**
+     * Merge the numbers of another MultiQuantileSelection into this one
+     * @param other the MultiQuantileSelection to merge into this one, tracking the same quantiles
+     * @throws IllegalArgumentException if the other tracks different quantiles
+     */
+    @Override
+    public void merge(MultiQuantileSelection other) {
+        if (!Arrays.equals(other.quantiles, quantiles)) {
+            throw new IllegalArgumentException("Cannot merge selections of different quantiles");
+        }
+        for (double num : other.toArray()) {
+            add(num);
+        }
+    }
+
+    /**
+     * Return the number of numbers added so far
+     * @return the number of numbers
+     */
+    @Override
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * The quantiles are exact
+     * @return 0
+     */
+    @Override
+    public double getRankError() {
+        return 0;
+    }
+
+    /**
+     * Copy the numbers of every heap
+     * @return a new array holding the numbers, in no particular order
+     */
+    private double[] toArray() {
+        double[] values = new double[count];
+        int offset = 0;
+        for (Segment segment : segments) {
+            System.arraycopy(segment.data, 0, values, offset, segment.size);
+            offset += segment.size;
+        }
+        return values;
+    }
+
+    /**
+     * A heap of the chain, whose smallest and largest values are both at hand: a min-max heap backed by a growable
+     * double array, whose even levels hold the minimum of their subtrees and odd levels the maximum.
+     * The values are ordered by Double.compare, like in PrimitiveHeapPriorityQueue.
+     */
+    private static final class Segment {
+
+        private double[] data = new double[16];
+
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(double num) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, data.length << 1);
+            }
+            data[size] = num;
+            bubbleUp(size++);
+        }
+
+        double peekMin() {
+            return data[0];
+        }
+
+        double peekMax() {
+            return data[maxIndex()];
+        }
+
+        double removeMin() {
+            return removeAt(0);
+        }
+
+        double removeMax() {
+            return removeAt(maxIndex());
+        }
+
+        /**
+         * Return the index of the largest value, the root or its largest child
+         * @return the index
+         */
+        private int maxIndex() {
+            if (size <= 2) {
+                return size - 1;
+            }
+            return Double.compare(data[1], data[2]) >= 0 ? 1 : 2;
+        }
+
+        /**
+         * Remove the value at the root of a min or max subtree, replacing it by the last value
+         * @param i the index of the value, 0 or the index of the largest value
+         * @return the removed value
+         */
+        private double removeAt(int i) {
+            double value = data[i];
+            data[i] = data[--size];
+            if (i < size) {
+                trickleDown(i);
+            }
+            return value;
+        }
+
+        private void bubbleUp(int i) {
+            if (i == 0) {
+                return;
+            }
+            int parent = (i - 1) >> 1;
+            boolean min = isMinLevel(i);
+            if (min ? Double.compare(data[i], data[parent]) > 0 : Double.compare(data[i], data[parent]) < 0) {
+                swap(i, parent);
+                bubbleUpGrandparents(parent, !min);
+            } else {
+                bubbleUpGrandparents(i, min);
+            }
+        }
+
+        private void bubbleUpGrandparents(int i, boolean min) {
+            while (i > 2) {
+                int grandparent = (((i - 1) >> 1) - 1) >> 1;
+                int cmp = Double.compare(data[i], data[grandparent]);
+                if (min ? cmp >= 0 : cmp <= 0) {
+                    return;
+                }
+                swap(i, grandparent);
+                i = grandparent;
+            }
+        }
+
+        private void trickleDown(int i) {
+            boolean min = isMinLevel(i);
+            while (2 * i + 1 < size) {
+                // The closest to the head among the children and grandchildren of i
+                int m = 2 * i + 1;
+                int last = Math.min(4 * i + 7, size);
+                for (int j = m + 1; j < last; j++) {
+                    if (j == 2 * i + 3) {
+                        // Skip from the children to the grandchildren, which start at 4 * i + 3
+                        j = 4 * i + 3;
+                        if (j >= size) {
+                            break;
+                        }
+                    }
+                    if (before(data[j], data[m], min)) {
+                        m = j;
+                    }
+                }
+                if (!before(data[m], data[i], min)) {
+                    return;
+                }
+                swap(i, m);
+                if (m <= 2 * i + 2) {
+                    return;
+                }
+                int parent = (m - 1) >> 1;
+                if (before(data[parent], data[m], min)) {
+                    swap(m, parent);
+                }
+                i = m;
+            }
+        }
+
+        private static boolean before(double a, double b, boolean min) {
+            int cmp = Double.compare(a, b);
+            return min ? cmp < 0 : cmp > 0;
+        }
+
+        private static boolean isMinLevel(int i) {
+            // The level of i is the position of the highest one bit of i + 1
+            return (31 - Integer.numberOfLeadingZeros(i + 1)) % 2 == 0;
+        }
+
+        private void swap(int i, int j) {
+            double value = data[i];
+            data[i] = data[j];
+            data[j] = value;
+        }
+    }
+}
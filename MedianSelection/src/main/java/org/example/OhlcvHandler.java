@@ -0,0 +1,19 @@
+package org.example;
+
+/**
+ * Receive the bars of a time series with all their fields, one at a time, as they are read
+ */
+@FunctionalInterface
+public interface OhlcvHandler {
+
+    /**
+     * Handle one bar. A field missing from the bar is NaN, except the close price which is always present.
+     * @param epochMinute the time of the bar, in minutes since 1970-01-01T00:00 local time (see EpochMinutes)
+     * @param open the opening price of the bar
+     * @param high the highest price of the bar
+     * @param low the lowest price of the bar
+     * @param close the closing price of the bar
+     * @param volume the traded volume of the bar
+     */
+    void onBar(long epochMinute, double open, double high, double low, double close, double volume);
+}
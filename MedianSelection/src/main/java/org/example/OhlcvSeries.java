@@ -0,0 +1,185 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * A growable series of bars held as one primitive column per field: epoch minutes, open, high, low and close prices
+ * and volumes. It collects the bars of a single parse as an OhlcvHandler, so any number of statistics can then be
+ * computed from its columns without parsing the response again.
+ */
+public class OhlcvSeries implements OhlcvHandler, DataSource {
+
+    /**
+     * Default capacity of the columns
+     */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Declare epochMinutes, opens, highs, lows, closes, volumes
+     */
+    private long[] epochMinutes;
+    private double[] opens, highs, lows, closes, volumes;
+
+    /**
+     * Number of bars
+     */
+    private int size;
+
+    /**
+     * Construct an empty series
+     */
+    public OhlcvSeries() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construct an empty series with the given initial capacity
+     * @param initialCapacity the initial length of the columns
+     */
+    public OhlcvSeries(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        epochMinutes = new long[capacity];
+        opens = new double[capacity];
+        highs = new double[capacity];
+        lows = new double[capacity];
+        closes = new double[capacity];
+        volumes = new double[capacity];
+    }
+
+    /**
+     * Append a bar
+     * @param epochMinute the time of the bar
+     * @param open the opening price of the bar
+     * @param high the highest price of the bar
+     * @param low the lowest price of the bar
+     * @param close the closing price of the bar
+     * @param volume the traded volume of the bar
+     */
+    @Override
+    public void onBar(long epochMinute, double open, double high, double low, double close, double volume) {
+        if (size == epochMinutes.length) {
+            int capacity = size << 1;
+            epochMinutes = Arrays.copyOf(epochMinutes, capacity);
+            opens = Arrays.copyOf(opens, capacity);
+            highs = Arrays.copyOf(highs, capacity);
+            lows = Arrays.copyOf(lows, capacity);
+            closes = Arrays.copyOf(closes, capacity);
+            volumes = Arrays.copyOf(volumes, capacity);
+            Metrics.add(MetricKey.ARRAY_GROWTHS, 6);
+            Metrics.add(MetricKey.BYTES_ALLOCATED, (long) capacity * (Long.BYTES + 5 * Double.BYTES));
+        }
+        epochMinutes[size] = epochMinute;
+        opens[size] = open;
+        highs[size] = high;
+        lows[size] = low;
+        closes[size] = close;
+        volumes[size] = volume;
+        size++;
+    }
+
+    /**
+     * Hand the close prices of the bars to the handler in the order of the series
+     * @param handler the handler of the bars
+     */
+    @Override
+    public void read(BarHandler handler) {
+        for (int i = 0; i < size; i++) {
+            handler.onBar(epochMinutes[i], closes[i]);
+        }
+    }
+
+    /**
+     * Hand the bars to the handler in the order of the series
+     * @param handler the handler of the bars
+     */
+    @Override
+    public void read(OhlcvHandler handler) {
+        for (int i = 0; i < size; i++) {
+            handler.onBar(epochMinutes[i], opens[i], highs[i], lows[i], closes[i], volumes[i]);
+        }
+    }
+
+    /**
+     * Sort the bars by time, keeping the order of bars with the same time
+     */
+    public void sort() {
+        int[] order = BarSeries.chronologicalOrder(epochMinutes, size);
+        if (order == null) {
+            return;
+        }
+        long[] sortedMinutes = new long[epochMinutes.length];
+        for (int i = 0; i < size; i++) {
+            sortedMinutes[i] = epochMinutes[order[i]];
+        }
+        epochMinutes = sortedMinutes;
+        opens = permute(opens, order);
+        highs = permute(highs, order);
+        lows = permute(lows, order);
+        closes = permute(closes, order);
+        volumes = permute(volumes, order);
+    }
+
+    private static double[] permute(double[] column, int[] order) {
+        double[] sorted = new double[column.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = column[order[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * Return the number of bars
+     * @return the number of bars
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the column of epoch minutes, whose first size() elements are the bars
+     * @return the backing array of epoch minutes
+     */
+    public long[] epochMinutes() {
+        return epochMinutes;
+    }
+
+    /**
+     * Return the column of open prices, whose first size() elements are the bars
+     * @return the backing array of open prices
+     */
+    public double[] opens() {
+        return opens;
+    }
+
+    /**
+     * Return the column of high prices, whose first size() elements are the bars
+     * @return the backing array of high prices
+     */
+    public double[] highs() {
+        return highs;
+    }
+
+    /**
+     * Return the column of low prices, whose first size() elements are the bars
+     * @return the backing array of low prices
+     */
+    public double[] lows() {
+        return lows;
+    }
+
+    /**
+     * Return the column of close prices, whose first size() elements are the bars
+     * @return the backing array of close prices
+     */
+    public double[] closes() {
+        return closes;
+    }
+
+    /**
+     * Return the column of volumes, whose first size() elements are the bars
+     * @return the backing array of volumes
+     */
+    public double[] volumes() {
+        return volumes;
+    }
+}
@@ -0,0 +1,281 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * An implementation of a priority queue using a heap backed by a growable double array.
+ * Unlike HeapPriorityQueue, no value is boxed, so add, remove and peek do not allocate
+ * once the array has reached its capacity.
+ * The heap is binary by default; a wider heap (4-ary, 8-ary) is shallower and keeps the children of a node
+ * in the same cache lines, which speeds up removals on large heaps at the cost of more comparisons per level.
+ */
+public class PrimitiveHeapPriorityQueue implements DoublePriorityQueue {
+
+    /**
+     * Default capacity of the backing array
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Largest number of children of a node
+     */
+    private static final int MAX_ARITY = 16;
+
+    /**
+     * The order of the heap: MIN keeps the smallest element at the head, MAX the largest
+     */
+    public static enum Order {
+        MIN,
+        MAX
+    }
+
+    /**
+     * Declare data
+     */
+    private double[] data;
+
+    /**
+     * Number of elements stored in data
+     */
+    private int size;
+
+    /**
+     * Whether the heap is a max heap
+     */
+    private final boolean maxHeap;
+
+    /**
+     * Base-2 logarithm of the number of children of a node
+     */
+    private final int arityShift;
+
+    /**
+     * Create an empty min priority queue
+     */
+    public PrimitiveHeapPriorityQueue() {
+        this(Order.MIN);
+    }
+
+    /**
+     * Create an empty priority queue with the given order
+     * @param order MIN or MAX
+     */
+    public PrimitiveHeapPriorityQueue(Order order) {
+        this(order, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty priority queue with the given order and initial capacity
+     * @param order MIN or MAX
+     * @param initialCapacity the initial length of the backing array
+     * @throws IllegalArgumentException if initialCapacity is negative
+     */
+    public PrimitiveHeapPriorityQueue(Order order, int initialCapacity) {
+        this(order, initialCapacity, 2);
+    }
+
+    /**
+     * Create an empty priority queue with the given order, initial capacity and number of children per node
+     * @param order MIN or MAX
+     * @param initialCapacity the initial length of the backing array
+     * @param arity the number of children of a node, a power of two between 2 and 16, e.g. 2, 4 or 8
+     * @throws IllegalArgumentException if initialCapacity is negative or arity is illegal
+     */
+    public PrimitiveHeapPriorityQueue(Order order, int initialCapacity, int arity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+        if (arity < 2 || arity > MAX_ARITY || Integer.bitCount(arity) != 1) {
+            throw new IllegalArgumentException("Illegal arity: " + arity);
+        }
+        this.data = new double[Math.max(1, initialCapacity)];
+        this.maxHeap = order == Order.MAX;
+        this.arityShift = Integer.numberOfTrailingZeros(arity);
+    }
+
+    /**
+     * Create a priority queue holding the given values, built in linear time by Floyd's heapify
+     * @param order MIN or MAX
+     * @param values the values, which are copied
+     */
+    public PrimitiveHeapPriorityQueue(Order order, double[] values) {
+        this(order, values.length);
+        addAll(values, 0, values.length);
+    }
+
+    /**
+     * Return the number of children of a node
+     * @return the arity of the heap
+     */
+    public int getArity() {
+        return 1 << arityShift;
+    }
+
+    /**
+     * Add a new element in the priority queue
+     * @param num The number to be added to the priority queue
+     **/
+    @Override
+    public void add(double num) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, data.length << 1);
+            Metrics.add(MetricKey.ARRAY_GROWTHS, 1);
+            Metrics.add(MetricKey.BYTES_ALLOCATED, (long) data.length * Double.BYTES);
+        }
+        upHeapify(size++, num);
+    }
+
+    /**
+     * Retrieve and remove the head of this priority queue
+     * @return the removed element
+     **/
+    @Override
+    public double remove() {
+        if (size == 0) {
+            throw new IllegalArgumentException();
+        }
+        double head = data[0];
+        size--;
+        if (size > 0) {
+            downHeapify(0, data[size]);
+        }
+        return head;
+    }
+
+    /**
+     * Retrieve the head of this priority queue
+     * @return the head element
+     **/
+    @Override
+    public double peek() {
+        if (size == 0) {
+            throw new IllegalArgumentException();
+        }
+        return data[0];
+    }
+
+    /**
+     * Return the number of items in the priority queue
+     * @return the number of items
+     **/
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the priority queue is empty
+     * @return the boolean
+     **/
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copy the elements of the priority queue, in heap order
+     * @return a new array holding the elements
+     **/
+    @Override
+    public double[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    /**
+     * Add the elements of a range of an array in the priority queue. When they are at least as many as the elements
+     * already in the queue, the whole heap is rebuilt in linear time by Floyd's heapify instead of sifting each one up.
+     * @param values the array
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     **/
+    @Override
+    public void addAll(double[] values, int from, int to) {
+        int count = to - from;
+        if (count < size) {
+            DoublePriorityQueue.super.addAll(values, from, to);
+            return;
+        }
+        if (size + count > data.length) {
+            data = Arrays.copyOf(data, Math.max(size + count, data.length << 1));
+            Metrics.add(MetricKey.ARRAY_GROWTHS, 1);
+            Metrics.add(MetricKey.BYTES_ALLOCATED, (long) data.length * Double.BYTES);
+        }
+        System.arraycopy(values, from, data, size, count);
+        size += count;
+        // Sift down every node with a child, from the last one to the root
+        for (int i = (size - 2) >> arityShift; i >= 0; i--) {
+            downHeapify(i, data[i]);
+        }
+    }
+
+    /**
+     * Remove all elements from the priority queue, keeping the backing array
+     **/
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Move the hole at index i towards the root until value can be placed without breaking the heap
+     * @param i the index of the hole
+     * @param value the value to be placed
+     **/
+    private void upHeapify(int i, double value) {
+        int steps = 0;
+        while (i > 0) {
+            int parent = (i - 1) >>> arityShift;
+            double p = data[parent];
+            if (!before(value, p)) {
+                break;
+            }
+            data[i] = p;
+            i = parent;
+            steps++;
+        }
+        data[i] = value;
+        Metrics.add(MetricKey.SIFT_UP_STEPS, steps);
+    }
+
+    /**
+     * Move the hole at index i towards the leaves until value can be placed without breaking the heap
+     * @param i the index of the hole
+     * @param value the value to be placed
+     **/
+    private void downHeapify(int i, double value) {
+        // Last node with a child; the arithmetic shift makes it -1 for fewer than two elements
+        int lastParent = (size - 2) >> arityShift, steps = 0;
+        while (i <= lastParent) {
+            int first = (i << arityShift) + 1;
+            // Pick the child closest to the head among the children of i
+            int last = Math.min(first + (1 << arityShift), size);
+            int child = first;
+            double c = data[first];
+            for (int j = first + 1; j < last; j++) {
+                if (before(data[j], c)) {
+                    child = j;
+                    c = data[j];
+                }
+            }
+            if (!before(c, value)) {
+                break;
+            }
+            data[i] = c;
+            i = child;
+            steps++;
+        }
+        data[i] = value;
+        Metrics.add(MetricKey.SIFT_DOWN_STEPS, steps);
+    }
+
+    /**
+     * Check whether a has to be placed above b, using the total order of Double.compare
+     * @param a the element that wants to compare
+     * @param b the element that wants to compare
+     * @return true if a is strictly closer to the head than b
+     */
+    private boolean before(double a, double b) {
+        int cmp = Double.compare(a, b);
+        return maxHeap ? cmp > 0 : cmp < 0;
+    }
+}
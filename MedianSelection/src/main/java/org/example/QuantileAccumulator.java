@@ -0,0 +1,44 @@
+package org.example;
+
+/**
+ * An accumulator of a stream of double values that can answer quantile queries,
+ * either exactly (MedianSelection) or approximately within a rank error (KllSketch).
+ */
+public interface QuantileAccumulator {
+
+    /**
+     * Add a new number to the accumulator
+     * @param num The number to be added
+     */
+    void add(double num);
+
+    /**
+     * Get the quantile of all the numbers added so far. The exact quantile interpolates linearly
+     * between the two values closest to the rank quantile * (count - 1), so the 0.5 quantile is the median.
+     * @param quantile the quantile, between 0 and 1
+     * @return the value at the quantile
+     * @throws IllegalArgumentException if the quantile is not between 0 and 1 or nothing has been added
+     */
+    double getQuantile(double quantile);
+
+    /**
+     * Get the median of all the numbers added so far
+     * @return the median
+     */
+    default double getMedian() {
+        return getQuantile(0.5);
+    }
+
+    /**
+     * Return the number of values added to the accumulator
+     * @return the number of values
+     */
+    long getCount();
+
+    /**
+     * Return the normalized rank error of the quantiles returned: a returned quantile q has a true rank
+     * within (q +/- error) * count. It is 0 for an exact accumulator.
+     * @return the rank error, between 0 and 1
+     */
+    double getRankError();
+}
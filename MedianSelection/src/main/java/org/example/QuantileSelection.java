@@ -0,0 +1,156 @@
+package org.example;
+
+/**
+ * Compute one quantile of a stream of double values exactly with two heaps split at the rank of the quantile
+ * instead of at the middle: the lower heap holds the floor(quantile * (count - 1)) + 1 smallest values,
+ * so the value at the quantile is interpolated between the heads of the two heaps in constant time.
+ */
+public class QuantileSelection implements QuantileAccumulator, Mergeable<QuantileSelection> {
+
+    /**
+     * Declare target quantile
+     */
+    private final double quantile;
+
+    /**
+     * Declare lowerHeap (head is its largest element), upperHeap (head is its smallest element)
+     */
+    private final DoublePriorityQueue lowerHeap, upperHeap;
+
+    /**
+     * Constructor for QuantileSelection class
+     * Construct a new QuantileSelection object with empty heaps backed by primitive double arrays.
+     * @param quantile the quantile to track, between 0 and 1
+     */
+    public QuantileSelection(double quantile) {
+        this(quantile, new PrimitiveHeapPriorityQueue(PrimitiveHeapPriorityQueue.Order.MAX),
+                new PrimitiveHeapPriorityQueue(PrimitiveHeapPriorityQueue.Order.MIN));
+    }
+
+    /**
+     * Construct a new QuantileSelection object on the given empty heaps
+     * @param quantile the quantile to track, between 0 and 1
+     * @param lowerHeap an empty heap whose head is its largest element
+     * @param upperHeap an empty heap whose head is its smallest element
+     * @throws IllegalArgumentException if the quantile is not between 0 and 1 or either heap is not empty
+     */
+    public QuantileSelection(double quantile, DoublePriorityQueue lowerHeap, DoublePriorityQueue upperHeap) {
+        MedianSelection.validateQuantile(quantile);
+        if (!lowerHeap.isEmpty() || !upperHeap.isEmpty()) {
+            throw new IllegalArgumentException("Heaps must be empty");
+        }
+        this.quantile = quantile;
+        this.lowerHeap = lowerHeap;
+        this.upperHeap = upperHeap;
+    }
+
+    /**
+     * Return the quantile tracked by the heaps
+     * @return the quantile, between 0 and 1
+     */
+    public double getTarget() {
+        return quantile;
+    }
+
+    /**
+     * Add a new number to the heaps
+     * @param num The number to be added
+     */
+    @Override
+    public void add(double num) {
+        if (!lowerHeap.isEmpty() && Double.compare(num, lowerHeap.peek()) <= 0) {
+            lowerHeap.add(num);
+        } else {
+            upperHeap.add(num);
+        }
+        balance();
+    }
+
+    /**
+     * Move the heads between the heaps until the lower heap holds the values up to the rank of the quantile.
+     * The target size grows by at most one per added value, so at most one head moves.
+     */
+    private void balance() {
+        int count = lowerHeap.size() + upperHeap.size();
+        int target = (int) (quantile * (count - 1)) + 1;
+        while (lowerHeap.size() > target) {
+            upperHeap.add(lowerHeap.remove());
+        }
+        while (lowerHeap.size() < target) {
+            lowerHeap.add(upperHeap.remove());
+        }
+    }
+
+    /**
+     * Get the value at the tracked quantile from the heads of the heaps
+     * @return the value at the quantile
+     * @throws IllegalArgumentException if nothing has been added
+     */
+    public double getValue() {
+        if (lowerHeap.isEmpty()) {
+            throw new IllegalArgumentException("No value has been added");
+        }
+        double rank = quantile * (getCount() - 1);
+        double fraction = rank - (int) rank;
+        double lower = lowerHeap.peek();
+        if (fraction == 0 || upperHeap.isEmpty()) {
+            return lower;
+        }
+        return lower + fraction * (upperHeap.peek() - lower);
+    }
+
+    /**
+     * Get the quantile of all the numbers added so far, exactly.
+     * The tracked quantile is answered from the heads of the heaps, any other by selecting in a copy of the heaps.
+     * @param quantile the quantile, between 0 and 1
+     * @return the value at the quantile
+     */
+    @Override
+    public double getQuantile(double quantile) {
+        MedianSelection.validateQuantile(quantile);
+        if (quantile == this.quantile) {
+            return getValue();
+        }
+        if (lowerHeap.isEmpty()) {
+            throw new IllegalArgumentException("No value has been added");
+        }
+        double[] lower = lowerHeap.toArray();
+        double[] upper = upperHeap.toArray();
+        double[] values = new double[lower.length + upper.length];
+        System.arraycopy(lower, 0, values, 0, lower.length);
+        System.arraycopy(upper, 0, values, lower.length, upper.length);
+        return IntroSelect.quantile(values, 0, values.length, quantile);
+    }
+
+    /**
+     * Merge the numbers of another QuantileSelection into this one
+     * @param other the QuantileSelection to merge into this one
+     */
+    @Override
+    public void merge(QuantileSelection other) {
+        for (double num : other.lowerHeap.toArray()) {
+            add(num);
+        }
+        for (double num : other.upperHeap.toArray()) {
+            add(num);
+        }
+    }
+
+    /**
+     * Return the number of numbers added so far
+     * @return the number of numbers
+     */
+    @Override
+    public long getCount() {
+        return lowerHeap.size() + upperHeap.size();
+    }
+
+    /**
+     * The quantiles are exact
+     * @return 0
+     */
+    @Override
+    public double getRankError() {
+        return 0;
+    }
+}
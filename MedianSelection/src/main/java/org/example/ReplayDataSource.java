@@ -0,0 +1,104 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replay recorded bars in chronological order, spacing them as they were recorded divided by a speed-up factor.
+ * With an infinite speed-up the bars are replayed as fast as the handler consumes them, which allows
+ * backfilling, load tests and benchmarks at disk speed.
+ */
+public class ReplayDataSource implements DataSource {
+
+    /**
+     * Source of the recorded bars
+     */
+    private final DataSource recorded;
+
+    /**
+     * Factor by which the time between two bars is divided
+     */
+    private final double speedUp;
+
+    /**
+     * Constructor for ReplayDataSource class
+     * @param recorded the source of the recorded bars, in any order
+     * @param speedUp the factor by which the time between two bars is divided, Double.POSITIVE_INFINITY for no wait
+     * @throws IllegalArgumentException if speedUp is not positive
+     */
+    public ReplayDataSource(DataSource recorded, double speedUp) {
+        if (!(speedUp > 0)) {
+            throw new IllegalArgumentException("Speed-up must be positive: " + speedUp);
+        }
+        this.recorded = recorded;
+        this.speedUp = speedUp;
+    }
+
+    /**
+     * Read the recorded bars, then hand them to the handler in chronological order at the replay speed
+     * @param handler the handler of the bars
+     * @throws IOException if the recorded bars cannot be read
+     * @throws InterruptedIOException if the thread is interrupted while waiting for a bar
+     */
+    @Override
+    public void read(BarHandler handler) throws IOException {
+        BarSeries series = new BarSeries();
+        recorded.read(series);
+        series.sort();
+        double[] closes = series.closes();
+        replay(series.epochMinutes(), series.size(), (i, epochMinute) -> handler.onBar(epochMinute, closes[i]));
+    }
+
+    /**
+     * Read the recorded bars with all their fields, then hand them to the handler in chronological order at the replay speed
+     * @param handler the handler of the bars
+     * @throws IOException if the recorded bars cannot be read
+     * @throws InterruptedIOException if the thread is interrupted while waiting for a bar
+     */
+    @Override
+    public void read(OhlcvHandler handler) throws IOException {
+        OhlcvSeries series = new OhlcvSeries();
+        recorded.read(series);
+        series.sort();
+        double[] opens = series.opens(), highs = series.highs(), lows = series.lows(), closes = series.closes(), volumes = series.volumes();
+        replay(series.epochMinutes(), series.size(),
+                (i, epochMinute) -> handler.onBar(epochMinute, opens[i], highs[i], lows[i], closes[i], volumes[i]));
+    }
+
+    /**
+     * Hand the bars to a consumer, spacing them by their recorded times divided by the speed-up
+     * @param epochMinutes the times of the bars, in chronological order
+     * @param size the number of bars
+     * @param consumer the consumer of the index and time of each bar
+     * @throws InterruptedIOException if the thread is interrupted while waiting for a bar
+     */
+    private void replay(long[] epochMinutes, int size, IntLongConsumer consumer) throws InterruptedIOException {
+        long start = System.nanoTime();
+        double nanosPerMinute = TimeUnit.MINUTES.toNanos(1) / speedUp;
+        for (int i = 0; i < size; i++) {
+            if (nanosPerMinute > 0) {
+                // Wait for an absolute deadline so that delays do not accumulate
+                long deadline = start + (long) ((epochMinutes[i] - epochMinutes[0]) * nanosPerMinute);
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(remaining);
+                    if (Thread.interrupted()) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while replaying");
+                    }
+                }
+            }
+            consumer.accept(i, epochMinutes[i]);
+        }
+    }
+
+    /**
+     * A consumer of the index and time of a bar
+     */
+    @FunctionalInterface
+    private interface IntLongConsumer {
+        void accept(int index, long epochMinute);
+    }
+}
@@ -0,0 +1,188 @@
+package org.example;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Keep the quantiles of a series at several resolutions at once: hourly, daily, weekly and monthly buckets.
+ * Bars are read once into hourly accumulators; every coarser bucket is the merge of the accumulators of the finer
+ * buckets it covers (days from hours, weeks and months from days), never a new scan of the bars. Bars added later
+ * only rebuild the coarser buckets above the hours they fall in, so a dashboard switching zoom level reads
+ * precomputed buckets. With MedianSelection the quantiles are exact and every level holds every value;
+ * with KllSketch every bucket has a bounded size.
+ * @param <A> the type of accumulator of a bucket
+ */
+public class RollupEngine<A extends QuantileAccumulator & Mergeable<A>> implements BarHandler {
+
+    /**
+     * The width of a bucket. Weeks start on Monday, as ISO weeks.
+     */
+    public static enum Resolution {
+        HOUR,
+        DAY,
+        WEEK,
+        MONTH;
+
+        /**
+         * Return the bucket of a time
+         * @param epochMinute the time
+         * @return the epoch minute of the start of the bucket holding the time
+         */
+        public long bucketOf(long epochMinute) {
+            long epochDay = EpochMinutes.toEpochDay(epochMinute);
+            return switch (this) {
+                case HOUR -> Math.floorDiv(epochMinute, 60) * 60;
+                case DAY -> epochDay * EpochMinutes.MINUTES_PER_DAY;
+                // 1970-01-01 is a Thursday, so Mondays are 4 days after a multiple of 7
+                case WEEK -> (Math.floorDiv(epochDay - 4, 7) * 7 + 4) * EpochMinutes.MINUTES_PER_DAY;
+                case MONTH -> LocalDate.ofEpochDay(epochDay).withDayOfMonth(1).toEpochDay() * EpochMinutes.MINUTES_PER_DAY;
+            };
+        }
+
+        /**
+         * Return the bucket following a bucket
+         * @param bucket the epoch minute of the start of a bucket
+         * @return the epoch minute of the start of the next bucket
+         */
+        public long nextBucket(long bucket) {
+            return switch (this) {
+                case HOUR -> bucket + 60;
+                case DAY -> bucket + EpochMinutes.MINUTES_PER_DAY;
+                case WEEK -> bucket + 7 * EpochMinutes.MINUTES_PER_DAY;
+                case MONTH -> LocalDate.ofEpochDay(EpochMinutes.toEpochDay(bucket)).plusMonths(1).toEpochDay() * EpochMinutes.MINUTES_PER_DAY;
+            };
+        }
+    }
+
+    /**
+     * Declare accumulatorFactory
+     */
+    private final Supplier<? extends A> accumulatorFactory;
+
+    /**
+     * Accumulators of each resolution, by epoch minute of the start of their bucket
+     */
+    private final Map<Resolution, NavigableMap<Long, A>> levels = new EnumMap<>(Resolution.class);
+
+    /**
+     * Hours with bars added since the last rollup
+     */
+    private final Set<Long> dirtyHours = new HashSet<>();
+
+    /**
+     * Constructor for RollupEngine class
+     * @param accumulatorFactory the factory of the accumulator of a bucket, e.g. MedianSelection::new
+     */
+    public RollupEngine(Supplier<? extends A> accumulatorFactory) {
+        this.accumulatorFactory = accumulatorFactory;
+        for (Resolution resolution : Resolution.values()) {
+            levels.put(resolution, new TreeMap<>());
+        }
+    }
+
+    /**
+     * Read the bars of a source in one pass, then roll them up to every resolution
+     * @param source the source of the bars, in any order
+     * @throws IOException if the source cannot be read
+     */
+    public void read(DataSource source) throws IOException {
+        source.read(this);
+        rollup();
+    }
+
+    /**
+     * Add a bar to its hour. The coarser resolutions are updated by the next rollup or query.
+     * @param epochMinute the time of the bar
+     * @param close the close price of the bar
+     */
+    @Override
+    public void onBar(long epochMinute, double close) {
+        long hour = Resolution.HOUR.bucketOf(epochMinute);
+        levels.get(Resolution.HOUR).computeIfAbsent(hour, bucket -> accumulatorFactory.get()).add(close);
+        dirtyHours.add(hour);
+    }
+
+    /**
+     * Rebuild the days above the hours with new bars from their hours, then the weeks and months above them from their days
+     */
+    public void rollup() {
+        if (dirtyHours.isEmpty()) {
+            return;
+        }
+        Set<Long> days = new HashSet<>(), weeks = new HashSet<>(), months = new HashSet<>();
+        for (long hour : dirtyHours) {
+            days.add(Resolution.DAY.bucketOf(hour));
+        }
+        for (long day : days) {
+            weeks.add(Resolution.WEEK.bucketOf(day));
+            months.add(Resolution.MONTH.bucketOf(day));
+        }
+        rebuild(Resolution.DAY, days, Resolution.HOUR);
+        rebuild(Resolution.WEEK, weeks, Resolution.DAY);
+        rebuild(Resolution.MONTH, months, Resolution.DAY);
+        dirtyHours.clear();
+    }
+
+    /**
+     * Get the accumulators of a resolution
+     * @param resolution the resolution
+     * @return an unmodifiable map of the epoch minutes of the starts of the buckets, in ascending order, and their accumulators
+     */
+    public NavigableMap<Long, A> getAccumulators(Resolution resolution) {
+        rollup();
+        return Collections.unmodifiableNavigableMap(levels.get(resolution));
+    }
+
+    /**
+     * Get the quantile of every bucket of a resolution
+     * @param resolution the resolution
+     * @param quantile the quantile, between 0 and 1
+     * @return the map of the starts of the buckets, in ascending order, and the values at the quantile
+     * @throws IllegalArgumentException if the quantile is not between 0 and 1
+     */
+    public Map<LocalDateTime, Double> getQuantiles(Resolution resolution, double quantile) {
+        MedianSelection.validateQuantile(quantile);
+        Map<LocalDateTime, Double> result = new TreeMap<>();
+        getAccumulators(resolution).forEach((bucket, accumulator) ->
+                result.put(EpochMinutes.toLocalDateTime(bucket), accumulator.getQuantile(quantile)));
+        return result;
+    }
+
+    /**
+     * Get the median of every bucket of a resolution
+     * @param resolution the resolution
+     * @return the map of the starts of the buckets, in ascending order, and their medians
+     */
+    public Map<LocalDateTime, Double> getMedians(Resolution resolution) {
+        Map<LocalDateTime, Double> result = new TreeMap<>();
+        getAccumulators(resolution).forEach((bucket, accumulator) ->
+                result.put(EpochMinutes.toLocalDateTime(bucket), accumulator.getMedian()));
+        return result;
+    }
+
+    /**
+     * Replace buckets of a resolution by the merge of the buckets of a finer resolution they cover
+     * @param resolution the resolution of the buckets
+     * @param buckets the epoch minutes of the starts of the buckets
+     * @param finer the finer resolution
+     */
+    private void rebuild(Resolution resolution, Set<Long> buckets, Resolution finer) {
+        NavigableMap<Long, A> children = levels.get(finer);
+        for (long bucket : buckets) {
+            A accumulator = accumulatorFactory.get();
+            for (A child : children.subMap(bucket, true, resolution.nextBucket(bucket), false).values()) {
+                accumulator.merge(child);
+            }
+            levels.get(resolution).put(bucket, accumulator);
+        }
+    }
+}
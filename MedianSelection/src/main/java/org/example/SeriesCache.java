@@ -0,0 +1,252 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A directory of cached bar series, one SeriesFile per key holding the time of the fetch in its header,
+ * with the close prices only or with all the fields of the bars.
+ * Files are written atomically, and the least recently used files are deleted once the directory grows beyond its maximum size.
+ * Temporary files left by interrupted writes are deleted when the cache is opened and when it evicts.
+ */
+public class SeriesCache {
+
+    /**
+     * Extension of cache files
+     */
+    private static final String EXTENSION = ".bars";
+
+    /**
+     * Extension of the files being written
+     */
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+
+    /**
+     * Age after which a temporary file is left by an interrupted write rather than being written
+     */
+    private static final long STALE_TEMPORARY_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * Declare directory
+     */
+    private final Path directory;
+
+    /**
+     * Maximum total size of the cache files in bytes
+     */
+    private final long maxBytes;
+
+    /**
+     * A cached series with the time it was fetched
+     */
+    public static class Entry {
+
+        private final SeriesFile file;
+
+        Entry(SeriesFile file) {
+            this.file = file;
+        }
+
+        /**
+         * Return the cached file, whose bars are read in place
+         * @return the mapped file
+         */
+        public SeriesFile getFile() {
+            return file;
+        }
+
+        /**
+         * Copy the cached bars into a series
+         * @return the bars in chronological order
+         * @throws IOException if the file is corrupt
+         */
+        public BarSeries getSeries() throws IOException {
+            return file.toBarSeries();
+        }
+
+        /**
+         * Copy the cached bars with all their fields into a series
+         * @return the bars in chronological order, with NaN for the fields the file does not hold
+         * @throws IOException if the file is corrupt
+         */
+        public OhlcvSeries getOhlcvSeries() throws IOException {
+            return file.toOhlcvSeries();
+        }
+
+        /**
+         * Return the time the bars were fetched
+         * @return the time in milliseconds since the epoch
+         */
+        public long getFetchedAt() {
+            return file.getTimestamp();
+        }
+    }
+
+    /**
+     * Constructor for SeriesCache class
+     * @param directory the directory of the cache files, created if needed
+     * @param maxBytes the maximum total size of the cache files
+     * @throws IOException if the directory cannot be created
+     */
+    public SeriesCache(Path directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        deleteStaleTemporaryFiles();
+    }
+
+    /**
+     * Build the key of a series
+     * @param symbolName the name of the stock
+     * @param interval the time interval of the bars
+     * @param outputSize the output size of the API call
+     * @return the key
+     */
+    public static String key(String symbolName, DataStreamHandle.Interval interval, DataStreamHandle.OutputSize outputSize) {
+        return symbolName.replaceAll("[^A-Za-z0-9.-]", "_") + "_" + interval + "_" + outputSize;
+    }
+
+    /**
+     * Load a cached series and mark it as recently used
+     * @param key the key of the series
+     * @return the cached series, or null if it is not cached or its file is unreadable
+     */
+    public Entry load(String key) {
+        Path path = path(key);
+        try {
+            SeriesFile file = SeriesFile.open(path);
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return new Entry(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Store a series, replacing the cached one, then evict the least recently used files beyond the maximum size
+     * @param key the key of the series
+     * @param series the bars to store
+     * @param fetchedAt the time the bars were fetched, in milliseconds since the epoch
+     * @throws IOException if the file cannot be written
+     */
+    public void store(String key, BarSeries series, long fetchedAt) throws IOException {
+        store(key, tmp -> SeriesFile.write(tmp, series, fetchedAt));
+    }
+
+    /**
+     * Store a series with all the fields of its bars, replacing the cached one, then evict the least recently used
+     * files beyond the maximum size
+     * @param key the key of the series
+     * @param series the bars to store
+     * @param fetchedAt the time the bars were fetched, in milliseconds since the epoch
+     * @throws IOException if the file cannot be written
+     */
+    public void store(String key, OhlcvSeries series, long fetchedAt) throws IOException {
+        store(key, tmp -> SeriesFile.write(tmp, series, fetchedAt));
+    }
+
+    /**
+     * Write a temporary file and move it over the file of a key, then evict
+     * @param key the key of the series
+     * @param writer the writer of the temporary file
+     * @throws IOException if the file cannot be written
+     */
+    private void store(String key, SeriesWriter writer) throws IOException {
+        Path path = path(key);
+        Path tmp = Files.createTempFile(directory, key, TEMPORARY_EXTENSION);
+        try {
+            writer.write(tmp);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        evict(path);
+    }
+
+    /**
+     * Delete the least recently used files until the cache fits in its maximum size, never deleting the given file
+     * @param keep the file just written
+     * @throws IOException if the directory cannot be listed
+     */
+    private void evict(Path keep) throws IOException {
+        deleteStaleTemporaryFiles();
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.filter(path -> path.getFileName().toString().endsWith(EXTENSION)).forEach(files::add);
+        }
+        long total = 0;
+        for (Path file : files) {
+            total += size(file);
+        }
+        files.remove(keep);
+        files.sort(Comparator.comparingLong(SeriesCache::lastModified));
+        for (Path file : files) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long size = size(file);
+            if (Files.deleteIfExists(file)) {
+                total -= size;
+            }
+        }
+    }
+
+    /**
+     * Delete the temporary files not modified for STALE_TEMPORARY_MILLIS, which no write is still filling
+     * @throws IOException if the directory cannot be listed
+     */
+    private void deleteStaleTemporaryFiles() throws IOException {
+        long staleBefore = System.currentTimeMillis() - STALE_TEMPORARY_MILLIS;
+        List<Path> stale = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.filter(path -> path.getFileName().toString().endsWith(TEMPORARY_EXTENSION) && lastModified(path) < staleBefore)
+                    .forEach(stale::add);
+        }
+        for (Path file : stale) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Return the file of a key
+     * @param key the key
+     * @return the path of the file
+     */
+    private Path path(String key) {
+        return directory.resolve(key + EXTENSION);
+    }
+
+    /**
+     * A writer of a series file
+     */
+    @FunctionalInterface
+    private interface SeriesWriter {
+        void write(Path path) throws IOException;
+    }
+}
@@ -0,0 +1,312 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A compact columnar file of a bar series, read back through a memory-mapped buffer without copying.
+ * <pre>
+ * offset  0: int    magic number
+ * offset  4: int    version
+ * offset  8: int    number of bars n
+ * offset 12: int    flags, FLAG_ALL_FIELDS if the open, high, low and volume columns are present
+ * offset 16: long   timestamp of the series, e.g. the time it was fetched
+ * offset 24: long   length of the timestamp column in bytes
+ * offset 32: double close prices, n raw little-endian doubles
+ * then     : with FLAG_ALL_FIELDS, open, high and low prices and volumes, n raw little-endian doubles each
+ * then     : epoch minutes, each the zig-zag varint of its difference from the previous one
+ * </pre>
+ * The double columns are 8-byte aligned, so they are accessed in place as DoubleBuffers; consecutive bars
+ * differ by a few minutes, so most epoch minutes take a single byte.
+ */
+public class SeriesFile implements DataSource {
+
+    /**
+     * Magic number of series files
+     */
+    private static final int MAGIC = 0x4D534346;
+
+    /**
+     * Version of the format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Length of the header in bytes
+     */
+    private static final int HEADER_BYTES = 32;
+
+    /**
+     * Flag of the files holding the open, high, low and volume columns after the close column
+     */
+    private static final int FLAG_ALL_FIELDS = 1;
+
+    /**
+     * Number of bars
+     */
+    private final int size;
+
+    /**
+     * Timestamp stored in the header
+     */
+    private final long timestamp;
+
+    /**
+     * Close column, a view of the mapped file
+     */
+    private final DoubleBuffer closes;
+
+    /**
+     * Open, high, low and volume columns, views of the mapped file, null if the file only holds close prices
+     */
+    private final DoubleBuffer opens, highs, lows, volumes;
+
+    /**
+     * Timestamp column, a view of the mapped file
+     */
+    private final ByteBuffer epochMinutes;
+
+    private SeriesFile(int size, long timestamp, DoubleBuffer[] columns, ByteBuffer epochMinutes) {
+        this.size = size;
+        this.timestamp = timestamp;
+        this.closes = columns[0];
+        boolean allFields = columns.length > 1;
+        this.opens = allFields ? columns[1] : null;
+        this.highs = allFields ? columns[2] : null;
+        this.lows = allFields ? columns[3] : null;
+        this.volumes = allFields ? columns[4] : null;
+        this.epochMinutes = epochMinutes;
+    }
+
+    /**
+     * Write a series to a file, replacing it if it exists
+     * @param path the path of the file
+     * @param series the bars to write
+     * @param timestamp the timestamp to store in the header
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, BarSeries series, long timestamp) throws IOException {
+        write(path, series.size(), series.epochMinutes(), new double[][] {series.closes()}, timestamp);
+    }
+
+    /**
+     * Write a series with all the fields of its bars to a file, replacing it if it exists
+     * @param path the path of the file
+     * @param series the bars to write
+     * @param timestamp the timestamp to store in the header
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, OhlcvSeries series, long timestamp) throws IOException {
+        write(path, series.size(), series.epochMinutes(),
+                new double[][] {series.closes(), series.opens(), series.highs(), series.lows(), series.volumes()}, timestamp);
+    }
+
+    /**
+     * Write columns of bars to a file, replacing it if it exists
+     * @param path the path of the file
+     * @param n the number of bars
+     * @param minutes the epoch minutes of the bars
+     * @param columns the close column alone, or followed by the open, high, low and volume columns
+     * @param timestamp the timestamp to store in the header
+     * @throws IOException if the file cannot be written
+     */
+    private static void write(Path path, int n, long[] minutes, double[][] columns, long timestamp) throws IOException {
+        byte[] encoded = new byte[Math.max(16, n * 2)];
+        int length = 0;
+        long previous = 0;
+        for (int i = 0; i < n; i++) {
+            if (encoded.length - length < 10) {
+                encoded = Arrays.copyOf(encoded, encoded.length * 2);
+            }
+            long delta = minutes[i] - previous;
+            previous = minutes[i];
+            // Zig-zag encoding keeps small negative differences small
+            long value = (delta << 1) ^ (delta >> 63);
+            while ((value & ~0x7FL) != 0) {
+                encoded[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            encoded[length++] = (byte) value;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        int flags = columns.length > 1 ? FLAG_ALL_FIELDS : 0;
+        header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(flags).putLong(timestamp).putLong(length).flip();
+        ByteBuffer doubleColumns = ByteBuffer.allocate(columns.length * n * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        DoubleBuffer view = doubleColumns.asDoubleBuffer();
+        for (double[] column : columns) {
+            view.put(column, 0, n);
+        }
+        ByteBuffer[] buffers = {header, doubleColumns, ByteBuffer.wrap(encoded, 0, length)};
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long remaining = HEADER_BYTES + doubleColumns.capacity() + length;
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        }
+    }
+
+    /**
+     * Open a series file by mapping it in memory
+     * @param path the path of the file
+     * @return the series file
+     * @throws IOException if the file cannot be read or is not a valid series file
+     */
+    public static SeriesFile open(Path path) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a series file: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported series file version " + buffer.getInt(4) + ": " + path);
+        }
+        int n = buffer.getInt(8);
+        int flags = buffer.getInt(12);
+        long timestamp = buffer.getLong(16);
+        long timestampBytes = buffer.getLong(24);
+        DoubleBuffer[] columns = new DoubleBuffer[(flags & FLAG_ALL_FIELDS) != 0 ? 5 : 1];
+        long columnsEnd = HEADER_BYTES + (long) columns.length * n * Double.BYTES;
+        if (n < 0 || timestampBytes < 0 || columnsEnd + timestampBytes != buffer.capacity()) {
+            throw new IOException("Truncated series file: " + path);
+        }
+        for (int c = 0; c < columns.length; c++) {
+            int from = HEADER_BYTES + c * n * Double.BYTES;
+            columns[c] = buffer.duplicate().position(from).limit(from + n * Double.BYTES)
+                    .slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+        ByteBuffer epochMinutes = buffer.duplicate().position((int) columnsEnd).slice();
+        return new SeriesFile(n, timestamp, columns, epochMinutes);
+    }
+
+    /**
+     * Hand the bars to the handler in the order they were written
+     * @param handler the handler of the bars
+     * @throws IOException if the timestamp column is corrupt
+     */
+    @Override
+    public void read(BarHandler handler) throws IOException {
+        decode((i, epochMinute) -> handler.onBar(epochMinute, closes.get(i)));
+    }
+
+    /**
+     * Hand the bars with all their fields to the handler in the order they were written.
+     * A file holding only close prices hands NaN for the other fields.
+     * @param handler the handler of the bars
+     * @throws IOException if the timestamp column is corrupt
+     */
+    @Override
+    public void read(OhlcvHandler handler) throws IOException {
+        if (!hasAllFields()) {
+            DataSource.super.read(handler);
+            return;
+        }
+        decode((i, epochMinute) -> handler.onBar(epochMinute, opens.get(i), highs.get(i), lows.get(i), closes.get(i), volumes.get(i)));
+    }
+
+    /**
+     * Decode the timestamp column and hand each epoch minute with the index of its bar to the consumer
+     * @param consumer the consumer of the bars
+     * @throws IOException if the timestamp column is corrupt
+     */
+    private void decode(IntLongConsumer consumer) throws IOException {
+        ByteBuffer column = epochMinutes.duplicate();
+        long epochMinute = 0;
+        for (int i = 0; i < size; i++) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (!column.hasRemaining() || shift > 63) {
+                    throw new IOException("Corrupt timestamp column at bar " + i);
+                }
+                b = column.get();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            epochMinute += (value >>> 1) ^ -(value & 1);
+            consumer.accept(i, epochMinute);
+        }
+    }
+
+    /**
+     * Copy the bars into a BarSeries
+     * @return a new series holding the bars
+     * @throws IOException if the timestamp column is corrupt
+     */
+    public BarSeries toBarSeries() throws IOException {
+        BarSeries series = new BarSeries(size);
+        read(series);
+        return series;
+    }
+
+    /**
+     * Copy the bars with all their fields into an OhlcvSeries
+     * @return a new series holding the bars, with NaN for the fields the file does not hold
+     * @throws IOException if the timestamp column is corrupt
+     */
+    public OhlcvSeries toOhlcvSeries() throws IOException {
+        OhlcvSeries series = new OhlcvSeries(size);
+        read(series);
+        return series;
+    }
+
+    /**
+     * Check whether the file holds the open, high, low and volume columns
+     * @return true if the file was written from an OhlcvSeries
+     */
+    public boolean hasAllFields() {
+        return opens != null;
+    }
+
+    /**
+     * Return the number of bars
+     * @return the number of bars
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the timestamp stored in the header
+     * @return the timestamp
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Return the close price of a bar, read in place from the mapped file
+     * @param i the index of the bar
+     * @return the close price
+     */
+    public double getClose(int i) {
+        return closes.get(i);
+    }
+
+    /**
+     * Return the close column, a read-only view of the mapped file
+     * @return the close prices
+     */
+    public DoubleBuffer closes() {
+        return closes.asReadOnlyBuffer();
+    }
+
+    /**
+     * A consumer of the index and time of a bar
+     */
+    @FunctionalInterface
+    private interface IntLongConsumer {
+        void accept(int index, long epochMinute);
+    }
+}
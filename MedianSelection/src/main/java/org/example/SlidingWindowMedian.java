@@ -0,0 +1,263 @@
+package org.example;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compute the median of the most recent values of a stream, either the last N values or the values
+ * of the last T milliseconds. Expired values are removed by lazy deletion: they are recorded in a
+ * delayed-removal map of the heap that holds them and only dropped once they reach its head, so
+ * each add or eviction costs O(log n).
+ */
+public class SlidingWindowMedian {
+
+    /**
+     * Declare maxHeap (lower half), minHeap (upper half)
+     */
+    private final PrimitiveHeapPriorityQueue maxHeap, minHeap;
+
+    /**
+     * Values waiting to be removed from the max heap and the min heap, with their multiplicity
+     */
+    private final Map<Double, Integer> maxHeapDelayed = new HashMap<>(), minHeapDelayed = new HashMap<>();
+
+    /**
+     * Number of values of the window held by the max heap and the min heap, without delayed ones
+     */
+    private int maxHeapSize, minHeapSize;
+
+    /**
+     * Maximum number of values in the window, Integer.MAX_VALUE for a time-based window
+     */
+    private final int windowSize;
+
+    /**
+     * Length of the window in milliseconds, Long.MAX_VALUE for a count-based window
+     */
+    private final long windowMillis;
+
+    /**
+     * Ring buffer of the values of the window and their timestamps, in arrival order
+     */
+    private double[] values;
+    private long[] timestamps;
+    private int head, count;
+
+    /**
+     * Timestamp of the last value added
+     */
+    private long lastTimestamp;
+
+    /**
+     * Construct a count-based window holding the last windowSize values
+     * @param windowSize the number of values in the window
+     * @throws IllegalArgumentException if windowSize is not positive
+     */
+    public SlidingWindowMedian(int windowSize) {
+        this(windowSize, Long.MAX_VALUE, windowSize);
+    }
+
+    /**
+     * Construct a time-based window holding the values of the last window milliseconds
+     * @param window the length of the window
+     * @throws IllegalArgumentException if window is not positive
+     */
+    public SlidingWindowMedian(Duration window) {
+        this(Integer.MAX_VALUE, window.toMillis(), 16);
+    }
+
+    private SlidingWindowMedian(int windowSize, long windowMillis, int capacity) {
+        if (windowSize <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        this.windowSize = windowSize;
+        this.windowMillis = windowMillis;
+        this.lastTimestamp = Long.MIN_VALUE;
+        this.values = new double[capacity];
+        this.timestamps = new long[capacity];
+        this.maxHeap = new PrimitiveHeapPriorityQueue(PrimitiveHeapPriorityQueue.Order.MAX, capacity);
+        this.minHeap = new PrimitiveHeapPriorityQueue(PrimitiveHeapPriorityQueue.Order.MIN, capacity);
+    }
+
+    /**
+     * Add a new number to a count-based window, evicting the oldest one if the window is full
+     * @param num The number to be added
+     * @throws IllegalStateException if the window is time-based, since the number would have no time
+     */
+    public void add(double num) {
+        if (windowMillis != Long.MAX_VALUE) {
+            throw new IllegalStateException("A time-based window needs the timestamp of every value");
+        }
+        add(lastTimestamp, num);
+    }
+
+    /**
+     * Add a new number observed at the given time, evicting the values that leave the window
+     * @param timestamp the time of the number in milliseconds, not earlier than the previous one
+     * @param num The number to be added
+     * @throws IllegalArgumentException if timestamp is earlier than the previous timestamp
+     */
+    public void add(long timestamp, double num) {
+        if (timestamp < lastTimestamp) {
+            throw new IllegalArgumentException("Timestamps must not decrease");
+        }
+        lastTimestamp = timestamp;
+        if (count == windowSize) {
+            evictOldest();
+        }
+        if (count == values.length) {
+            grow();
+        }
+        int tail = (head + count) % values.length;
+        values[tail] = num;
+        timestamps[tail] = timestamp;
+        count++;
+        insert(num);
+        advanceTo(timestamp);
+    }
+
+    /**
+     * Evict the values older than the window ending at the given time, for a time-based window
+     * @param timestamp the current time in milliseconds
+     */
+    public void advanceTo(long timestamp) {
+        // Before Long.MIN_VALUE + windowMillis nothing can have expired, and the start of the window would overflow
+        if (windowMillis == Long.MAX_VALUE || timestamp < Long.MIN_VALUE + windowMillis) {
+            return;
+        }
+        while (count > 0 && timestamps[head] <= timestamp - windowMillis) {
+            evictOldest();
+        }
+    }
+
+    /**
+     * Return the number of values in the window
+     * @return the number of values
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get the median of the values in the window
+     * @return The median of the values currently in the window
+     * @throws IllegalArgumentException if the window is empty
+     */
+    public double getMedian() {
+        if (count == 0) {
+            throw new IllegalArgumentException("Window is empty");
+        }
+        if (maxHeapSize > minHeapSize) {
+            return maxHeap.peek();
+        }
+        return (maxHeap.peek() + minHeap.peek()) / 2;
+    }
+
+    /**
+     * Insert a value in the heaps, like MedianSelection.add
+     * @param num the value to insert
+     */
+    private void insert(double num) {
+        if (maxHeapSize == 0 || Double.compare(num, maxHeap.peek()) <= 0) {
+            maxHeap.add(num);
+            maxHeapSize++;
+        } else {
+            minHeap.add(num);
+            minHeapSize++;
+        }
+        balance();
+    }
+
+    /**
+     * Remove the oldest value of the ring buffer and mark it as deleted in the heap holding it
+     */
+    private void evictOldest() {
+        double num = values[head];
+        head = (head + 1) % values.length;
+        count--;
+        // Every value of the max heap is less than or equal to every value of the min heap
+        if (Double.compare(num, maxHeap.peek()) <= 0) {
+            maxHeapDelayed.merge(num, 1, Integer::sum);
+            maxHeapSize--;
+            prune(maxHeap, maxHeapDelayed);
+        } else {
+            minHeapDelayed.merge(num, 1, Integer::sum);
+            minHeapSize--;
+            prune(minHeap, minHeapDelayed);
+        }
+        balance();
+        if (maxHeap.size() + minHeap.size() > 2 * count + 16) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Keep the max heap holding as many values as the min heap, or one more
+     */
+    private void balance() {
+        if (maxHeapSize > minHeapSize + 1) {
+            minHeap.add(maxHeap.remove());
+            maxHeapSize--;
+            minHeapSize++;
+            prune(maxHeap, maxHeapDelayed);
+        } else if (maxHeapSize < minHeapSize) {
+            maxHeap.add(minHeap.remove());
+            minHeapSize--;
+            maxHeapSize++;
+            prune(minHeap, minHeapDelayed);
+        }
+    }
+
+    /**
+     * Drop the delayed values that reached the head of the heap
+     * @param heap the heap to prune
+     * @param delayed the values waiting to be removed from this heap
+     */
+    private static void prune(PrimitiveHeapPriorityQueue heap, Map<Double, Integer> delayed) {
+        while (!heap.isEmpty()) {
+            Double head = heap.peek();
+            Integer pending = delayed.get(head);
+            if (pending == null) {
+                return;
+            }
+            if (pending == 1) {
+                delayed.remove(head);
+            } else {
+                delayed.put(head, pending - 1);
+            }
+            heap.remove();
+        }
+    }
+
+    /**
+     * Rebuild the heaps from the ring buffer once delayed values make up most of them,
+     * so that values that never reach a head do not accumulate
+     */
+    private void rebuild() {
+        maxHeap.clear();
+        minHeap.clear();
+        maxHeapDelayed.clear();
+        minHeapDelayed.clear();
+        maxHeapSize = 0;
+        minHeapSize = 0;
+        for (int i = 0; i < count; i++) {
+            insert(values[(head + i) % values.length]);
+        }
+    }
+
+    /**
+     * Double the capacity of the ring buffer
+     */
+    private void grow() {
+        double[] newValues = new double[values.length << 1];
+        long[] newTimestamps = new long[values.length << 1];
+        for (int i = 0; i < count; i++) {
+            newValues[i] = values[(head + i) % values.length];
+            newTimestamps[i] = timestamps[(head + i) % values.length];
+        }
+        values = newValues;
+        timestamps = newTimestamps;
+        head = 0;
+    }
+}
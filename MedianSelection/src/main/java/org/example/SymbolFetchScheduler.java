@@ -0,0 +1,240 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetch the daily medians of many symbols concurrently with the asynchronous HTTP client.
+ * Requests are spaced by a token bucket so that the API quota is respected, and failed requests
+ * are retried with exponential backoff. No thread is blocked while waiting for a token, a response or a retry.
+ */
+public class SymbolFetchScheduler {
+
+    /**
+     * Declare httpClient
+     */
+    private final HttpClient httpClient;
+
+    /**
+     * Declare tokenBucket
+     */
+    private final TokenBucket tokenBucket;
+
+    /**
+     * Executor parsing the responses and running the delayed requests
+     */
+    private final Executor executor;
+
+    /**
+     * Parameters of the API calls
+     */
+    private final String apiPrefix, apiKey;
+    private final DataStreamHandle.Interval interval;
+    private final DataStreamHandle.OutputSize outputSize;
+
+    /**
+     * Maximum number of retries of a symbol, and delay before the first retry
+     */
+    private final int maxRetries;
+    private final Duration initialBackoff;
+
+    /**
+     * Constructor for SymbolFetchScheduler class
+     * @param apiPrefix the URL of the API, or null for Alpha Vantage
+     * @param apiKey my API key used to access the Alpha Vantage API
+     * @param interval the time interval for the API calls
+     * @param outputSize the output size for the API calls
+     * @param tokenBucket the limit of the rate of requests
+     * @param maxRetries the maximum number of retries of a symbol
+     * @param initialBackoff the delay before the first retry, doubled at every retry
+     * @param executor the executor parsing the responses, e.g. ForkJoinPool.commonPool()
+     */
+    public SymbolFetchScheduler(String apiPrefix, String apiKey, DataStreamHandle.Interval interval, DataStreamHandle.OutputSize outputSize,
+                                TokenBucket tokenBucket, int maxRetries, Duration initialBackoff, Executor executor) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative");
+        }
+        this.apiPrefix = apiPrefix;
+        this.apiKey = apiKey;
+        this.interval = interval;
+        this.outputSize = outputSize;
+        this.tokenBucket = tokenBucket;
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+        this.executor = executor;
+        this.httpClient = HttpClient.newBuilder().executor(executor).connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    /**
+     * Fetch the daily medians of many symbols and wait for all of them
+     * @param symbols the symbols
+     * @return the medians of the symbols that were fetched and the errors of the others
+     */
+    public Result fetchMedians(Collection<String> symbols) {
+        Map<String, CompletableFuture<Map<LocalDate, Double>>> futures = new TreeMap<>();
+        for (String symbol : symbols) {
+            futures.put(symbol, fetchMedian(symbol));
+        }
+        Result result = new Result();
+        futures.forEach((symbol, future) -> {
+            try {
+                result.medians.put(symbol, future.join());
+            } catch (CompletionException e) {
+                result.failures.put(symbol, unwrap(e));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Fetch the daily medians of a symbol
+     * @param symbol the symbol
+     * @return a future completed with the map of local dates, in ascending order, and corresponding median prices,
+     * or completed exceptionally with the error of the last attempt
+     */
+    public CompletableFuture<Map<LocalDate, Double>> fetchMedian(String symbol) {
+        return attempt(new DataStreamHandle(apiPrefix, apiKey, symbol, interval, outputSize), 0);
+    }
+
+    /**
+     * Make one attempt at fetching a symbol once a token is available, and schedule a retry if it fails
+     * @param dataStreamHandle the handle of the symbol
+     * @param retries the number of retries made so far
+     * @return a future of the medians
+     */
+    private CompletableFuture<Map<LocalDate, Double>> attempt(DataStreamHandle dataStreamHandle, int retries) {
+        Executor afterToken = CompletableFuture.delayedExecutor(tokenBucket.reserve(), TimeUnit.NANOSECONDS, executor);
+        return CompletableFuture.supplyAsync(() -> request(dataStreamHandle), afterToken)
+                .thenCompose(request -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()))
+                .thenApplyAsync(response -> parse(dataStreamHandle, response), executor)
+                .handle((medians, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(medians);
+                    }
+                    Throwable cause = unwrap(error);
+                    if (retries >= maxRetries || !isRetryable(cause)) {
+                        return CompletableFuture.<Map<LocalDate, Double>>failedFuture(cause);
+                    }
+                    long backoff = initialBackoff.toNanos() << Math.min(retries, 20);
+                    Executor afterBackoff = CompletableFuture.delayedExecutor(backoff, TimeUnit.NANOSECONDS, executor);
+                    return CompletableFuture.supplyAsync(() -> dataStreamHandle, afterBackoff).thenCompose(handle -> attempt(handle, retries + 1));
+                })
+                .thenCompose(future -> future);
+    }
+
+    /**
+     * Build the request of a symbol
+     * @param dataStreamHandle the handle of the symbol
+     * @return the request
+     */
+    private static HttpRequest request(DataStreamHandle dataStreamHandle) {
+        return HttpRequest.newBuilder(URI.create(dataStreamHandle.getUrl()))
+                .header("Accept", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    /**
+     * Stream the body of a response into daily medians
+     * @param dataStreamHandle the handle of the symbol
+     * @param response the response
+     * @return the map of local dates and corresponding median prices
+     * @throws UncheckedIOException if the status is not 200 or the body cannot be parsed
+     */
+    private static Map<LocalDate, Double> parse(DataStreamHandle dataStreamHandle, HttpResponse<InputStream> response) {
+        try (InputStream body = response.body(); Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            if (response.statusCode() != 200) {
+                throw new HttpStatusException(response.statusCode(), response.uri());
+            }
+            return dataStreamHandle.streamQuantile(reader, 0.5, MedianSelection::new);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Check whether an error is transient: an I/O error, a rate limit or server error status,
+     * or a note of the API, but not an error message of the API such as an unknown symbol
+     * @param error the error
+     * @return whether the request should be retried
+     */
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof HttpStatusException) {
+            int status = ((HttpStatusException) error).status;
+            return status == 429 || status >= 500;
+        }
+        return error instanceof IOException
+                && (error.getMessage() == null || !error.getMessage().startsWith("Error Message"));
+    }
+
+    /**
+     * Unwrap the exception thrown by a stage of a future
+     * @param error the exception
+     * @return the underlying exception
+     */
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof UncheckedIOException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * An HTTP response with a status other than 200
+     */
+    private static class HttpStatusException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        HttpStatusException(int status, URI uri) {
+            super("HTTP " + status + " from " + uri);
+            this.status = status;
+        }
+    }
+
+    /**
+     * The result of fetching many symbols
+     */
+    public static class Result {
+
+        private final Map<String, Map<LocalDate, Double>> medians = new TreeMap<>();
+
+        private final Map<String, Throwable> failures = new TreeMap<>();
+
+        /**
+         * Return the medians of the symbols that were fetched
+         * @return the map of symbols and their maps of local dates and corresponding median prices
+         */
+        public Map<String, Map<LocalDate, Double>> getMedians() {
+            return medians;
+        }
+
+        /**
+         * Return the errors of the symbols that could not be fetched after all retries
+         * @return the map of symbols and their last errors
+         */
+        public Map<String, Throwable> getFailures() {
+            return failures;
+        }
+    }
+}
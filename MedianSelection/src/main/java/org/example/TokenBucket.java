@@ -0,0 +1,87 @@
+package org.example;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket limiting the rate of requests. Tokens are refilled continuously at a fixed rate
+ * up to the capacity of the bucket. A caller reserves a token and is told how long to wait before
+ * using it, so waiting can be scheduled instead of blocking a thread.
+ */
+public class TokenBucket {
+
+    /**
+     * Maximum number of tokens
+     */
+    private final double capacity;
+
+    /**
+     * Tokens refilled per nanosecond
+     */
+    private final double tokensPerNano;
+
+    /**
+     * Source of the current time in nanoseconds
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Tokens available, negative when tokens have been reserved in advance
+     */
+    private double tokens;
+
+    /**
+     * Time of the last refill
+     */
+    private long lastRefill;
+
+    /**
+     * Construct a bucket allowing the given number of requests per minute, with bursts of the same size
+     * @param requestsPerMinute the number of requests per minute
+     * @throws IllegalArgumentException if requestsPerMinute is not positive
+     */
+    public TokenBucket(int requestsPerMinute) {
+        this(requestsPerMinute, requestsPerMinute, System::nanoTime);
+    }
+
+    /**
+     * Construct a bucket
+     * @param requestsPerMinute the number of requests per minute
+     * @param capacity the maximum number of tokens, which is also the initial number of tokens
+     * @param clock the source of the current time in nanoseconds
+     * @throws IllegalArgumentException if requestsPerMinute or capacity is not positive
+     */
+    public TokenBucket(int requestsPerMinute, int capacity, LongSupplier clock) {
+        if (requestsPerMinute <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Rate and capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = requestsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.clock = clock;
+        this.tokens = capacity;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    /**
+     * Reserve a token
+     * @return the number of nanoseconds to wait before the token can be used, 0 if it can be used now
+     */
+    public synchronized long reserve() {
+        long now = clock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        tokens -= 1;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-tokens / tokensPerNano);
+    }
+
+    /**
+     * Reserve a token and block until it can be used
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(reserve());
+    }
+}
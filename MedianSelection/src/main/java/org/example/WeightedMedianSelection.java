@@ -0,0 +1,200 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Compute the weighted median of a stream of (value, weight) pairs, e.g. prices weighted by traded volume,
+ * with two heaps split at half the total weight: the lower heap holds the smallest values up to the first one
+ * whose cumulative weight reaches half the total weight. Each add moves the heads between the heaps
+ * until the split is restored, each move taking logarithmic time.
+ * The weighted median is defined as by IntroSelect.weightedMedian, so that of equal weights is the median.
+ */
+public class WeightedMedianSelection implements Mergeable<WeightedMedianSelection> {
+
+    /**
+     * Declare lowerHeap (head is its largest value), upperHeap (head is its smallest value)
+     */
+    private final WeightedHeap lowerHeap = new WeightedHeap(true), upperHeap = new WeightedHeap(false);
+
+    /**
+     * Add a value with a weight. Values of zero weight do not change the weighted median and are not kept.
+     * @param value the value
+     * @param weight the weight of the value
+     * @throws IllegalArgumentException if the weight is negative or NaN
+     */
+    public void add(double value, double weight) {
+        if (!(weight >= 0)) {
+            throw new IllegalArgumentException("Illegal weight " + weight);
+        }
+        if (weight == 0) {
+            return;
+        }
+        if (!lowerHeap.isEmpty() && Double.compare(value, lowerHeap.peekValue()) <= 0) {
+            lowerHeap.add(value, weight);
+        } else {
+            upperHeap.add(value, weight);
+        }
+        balance();
+    }
+
+    /**
+     * Move the heads between the heaps until the cumulative weight of the lower heap reaches half the total weight,
+     * and would not reach it without its head
+     */
+    private void balance() {
+        double half = getTotalWeight() / 2;
+        while (lowerHeap.getWeight() < half && !upperHeap.isEmpty()) {
+            lowerHeap.add(upperHeap.peekValue(), upperHeap.peekWeight());
+            upperHeap.remove();
+        }
+        while (lowerHeap.size() > 1 && lowerHeap.getWeight() - lowerHeap.peekWeight() >= half) {
+            upperHeap.add(lowerHeap.peekValue(), lowerHeap.peekWeight());
+            lowerHeap.remove();
+        }
+    }
+
+    /**
+     * Get the weighted median of all the pairs added so far: the head of the lower heap, or its midpoint
+     * with the head of the upper heap when the lower heap weighs exactly half the total weight
+     * @return the weighted median
+     * @throws IllegalArgumentException if no pair of positive weight has been added
+     */
+    public double getMedian() {
+        if (lowerHeap.isEmpty()) {
+            throw new IllegalArgumentException("No value has been added");
+        }
+        double lower = lowerHeap.peekValue();
+        if (lowerHeap.getWeight() * 2 > getTotalWeight() || upperHeap.isEmpty()) {
+            return lower;
+        }
+        return (lower + upperHeap.peekValue()) / 2;
+    }
+
+    /**
+     * Merge the pairs of another WeightedMedianSelection into this one
+     * @param other the WeightedMedianSelection to merge into this one
+     */
+    @Override
+    public void merge(WeightedMedianSelection other) {
+        for (WeightedHeap heap : new WeightedHeap[] {other.lowerHeap, other.upperHeap}) {
+            double[] values = Arrays.copyOf(heap.values, heap.size);
+            double[] weights = Arrays.copyOf(heap.weights, heap.size);
+            for (int i = 0; i < values.length; i++) {
+                add(values[i], weights[i]);
+            }
+        }
+    }
+
+    /**
+     * Return the number of pairs of positive weight added so far
+     * @return the number of pairs
+     */
+    public long getCount() {
+        return lowerHeap.size() + upperHeap.size();
+    }
+
+    /**
+     * Return the total weight of the pairs added so far
+     * @return the total weight
+     */
+    public double getTotalWeight() {
+        return lowerHeap.getWeight() + upperHeap.getWeight();
+    }
+
+    /**
+     * A heap of values with their weights, held in two parallel growable arrays, which keeps the sum of the weights
+     */
+    private static final class WeightedHeap {
+
+        private double[] values = new double[16], weights = new double[16];
+
+        private int size;
+
+        /**
+         * Sum of the weights
+         */
+        private double weight;
+
+        /**
+         * Whether the heap is a max heap
+         */
+        private final boolean maxHeap;
+
+        WeightedHeap(boolean maxHeap) {
+            this.maxHeap = maxHeap;
+        }
+
+        void add(double value, double w) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+                weights = Arrays.copyOf(weights, size << 1);
+            }
+            weight += w;
+            // Move the hole from the new leaf towards the root
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(value, values[parent])) {
+                    break;
+                }
+                values[i] = values[parent];
+                weights[i] = weights[parent];
+                i = parent;
+            }
+            values[i] = value;
+            weights[i] = w;
+        }
+
+        void remove() {
+            weight -= weights[0];
+            size--;
+            if (size == 0) {
+                // Drop the rounding errors of the sum
+                weight = 0;
+                return;
+            }
+            double value = values[size], w = weights[size];
+            // Move the hole from the root towards the leaves
+            int i = 0, half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && before(values[child + 1], values[child])) {
+                    child++;
+                }
+                if (!before(values[child], value)) {
+                    break;
+                }
+                values[i] = values[child];
+                weights[i] = weights[child];
+                i = child;
+            }
+            values[i] = value;
+            weights[i] = w;
+        }
+
+        double peekValue() {
+            return values[0];
+        }
+
+        double peekWeight() {
+            return weights[0];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double getWeight() {
+            return weight;
+        }
+
+        private boolean before(double a, double b) {
+            int cmp = Double.compare(a, b);
+            return maxHeap ? cmp > 0 : cmp < 0;
+        }
+    }
+}
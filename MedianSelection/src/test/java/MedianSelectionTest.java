@@ -1,14 +1,77 @@
+import org.example.AlphaVantageStreamParser;
+import org.example.BarHandler;
+import org.example.BarSeries;
+import org.example.CachingDataSource;
+import org.example.ChartBatchRenderer;
+import org.example.DataSource;
+import org.example.ConcurrentMedianSelection;
+import org.example.DailyOhlcvStatistics;
 import org.example.DataStreamHandle;
+import org.example.DecimalParser;
+import org.example.DoublePriorityQueue;
+import org.example.Downsampling;
 import org.example.DrawChart;
+import org.example.EpochMinutes;
+import org.example.FileDataSource;
 import org.example.HeapPriorityQueue;
+import org.example.IncrementalMedianStore;
+import org.example.IntroSelect;
+import org.example.KllSketch;
+import org.example.LongAdderMetricsRegistry;
+import org.example.MetricKey;
+import org.example.MedianPublisher;
+import org.example.Metrics;
+import org.example.MetricsRegistry;
 import org.example.MedianSelection;
+import org.example.MultiQuantileSelection;
+import org.example.OhlcvHandler;
+import org.example.OhlcvSeries;
+import org.example.PrimitiveHeapPriorityQueue;
+import org.example.QuantileAccumulator;
+import org.example.QuantileSelection;
+import org.example.ReplayDataSource;
+import org.example.RollupEngine;
+import org.example.SeriesCache;
+import org.example.SeriesFile;
+import org.example.SlidingWindowMedian;
+import org.example.SymbolFetchScheduler;
+import org.example.TokenBucket;
+import org.example.WeightedMedianSelection;
+import com.sun.net.httpserver.HttpServer;
+import org.jfree.data.time.TimeSeries;
+import org.jfree.data.time.TimeSeriesCollection;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -32,6 +95,20 @@ class MedianSelectionTest {
      */
     private DataStreamHandle dataStreamHandle;
 
+    /**
+     * A canned response of the API, with bars of two dates and members that have to be skipped
+     */
+    private static final String PAYLOAD = "{\"Meta Data\": {\"1. Information\": \"Intraday (60min) \\\"quoted\\\" \\u00e9\", "
+            + "\"2. Symbol\": \"IBM\", \"7. Sizes\": [1, 2.5, true, null, {\"a\": []}]},\n"
+            + "  \"Time Series (60min)\": {\n"
+            + "    \"2023-03-02 11:00:00\": {\"1. open\": \"10.0\", \"4. close\": \"12.50\", \"5. volume\": \"100\"},\n"
+            + "    \"2023-03-02 10:00:00\": {\"4. close\": \"11.00\", \"5. volume\": \"200\"},\n"
+            + "    \"2023-03-02 09:00:00\": {\"4. close\": \"13.25\", \"5. volume\": \"300\"},\n"
+            + "    \"2023-03-01 16:00:00\": {\"4. close\": \"9.00\", \"5. volume\": \"400\"},\n"
+            + "    \"2023-03-01 15:00:00\": {\"4. close\": \"8.00\", \"5. volume\": \"500\"}\n"
+            + "  }\n"
+            + "}";
+
     /**
      * Set up dataStreamHandle for reuse in test cases.
      */
@@ -119,6 +196,150 @@ class MedianSelectionTest {
         assertTrue(Double.isNaN(heapPriorityQueue1.peek()));
     }
 
+    /**
+     * Test PrimitiveHeapPriorityQueue in both orders by adding elements past the initial capacity
+     * and checking that they are removed in sorted order
+     */
+    @Test
+    public void testPrimitivePriorityQueue() {
+        PrimitiveHeapPriorityQueue minHeap = new PrimitiveHeapPriorityQueue(PrimitiveHeapPriorityQueue.Order.MIN, 2);
+        PrimitiveHeapPriorityQueue maxHeap = new PrimitiveHeapPriorityQueue(PrimitiveHeapPriorityQueue.Order.MAX, 2);
+        double[] values = {15.0, 5.0, 8.0, 10.0, 5.0, -3.0, 42.0, 0.0};
+        for (double value : values) {
+            minHeap.add(value);
+            maxHeap.add(value);
+        }
+        assertEquals(values.length, minHeap.size());
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            assertEquals(sorted[i], minHeap.peek());
+            assertEquals(sorted[i], minHeap.remove());
+            assertEquals(sorted[sorted.length - 1 - i], maxHeap.remove());
+        }
+        assertTrue(minHeap.isEmpty());
+        assertThrows(IllegalArgumentException.class, minHeap::remove);
+        assertThrows(IllegalArgumentException.class, maxHeap::peek);
+    }
+
+    /**
+     * Property test of the heaps: random sequences of adds and removes with many duplicates, on the list-based heap
+     * and on primitive heaps of arity 2, 4 and 8 in both orders, always agree with a sorted reference list
+     */
+    @Test
+    public void testHeapsAgainstSortedReference() {
+        Random random = new Random(19);
+        for (int trial = 0; trial < 40; trial++) {
+            boolean max = trial % 2 == 1;
+            PrimitiveHeapPriorityQueue.Order order = max ? PrimitiveHeapPriorityQueue.Order.MAX : PrimitiveHeapPriorityQueue.Order.MIN;
+            List<DoublePriorityQueue> heaps = List.of(
+                    new HeapPriorityQueue(max ? Comparator.reverseOrder() : null),
+                    new PrimitiveHeapPriorityQueue(order, 1, 2),
+                    new PrimitiveHeapPriorityQueue(order, 1, 4),
+                    new PrimitiveHeapPriorityQueue(order, 1, 8));
+            List<Double> reference = new ArrayList<>();
+            int operations = 1 + random.nextInt(2000);
+            for (int i = 0; i < operations; i++) {
+                if (reference.isEmpty() || random.nextInt(3) > 0) {
+                    double value = random.nextInt(1 + trial * 10);
+                    int index = Collections.binarySearch(reference, value);
+                    reference.add(index < 0 ? -index - 1 : index, value);
+                    for (DoublePriorityQueue heap : heaps) {
+                        heap.add(value);
+                    }
+                } else {
+                    double expected = reference.remove(max ? reference.size() - 1 : 0);
+                    for (DoublePriorityQueue heap : heaps) {
+                        assertEquals(expected, heap.remove());
+                    }
+                }
+                for (DoublePriorityQueue heap : heaps) {
+                    assertEquals(reference.size(), heap.size());
+                    if (!reference.isEmpty()) {
+                        assertEquals(reference.get(max ? reference.size() - 1 : 0), heap.peek());
+                    }
+                }
+            }
+        }
+        assertEquals(8, new PrimitiveHeapPriorityQueue(PrimitiveHeapPriorityQueue.Order.MIN, 16, 8).getArity());
+        assertThrows(IllegalArgumentException.class, () -> new PrimitiveHeapPriorityQueue(PrimitiveHeapPriorityQueue.Order.MIN, 16, 3));
+    }
+
+    /**
+     * Test the bulk APIs: heaps built by Floyd's heapify remove their values in sorted order, and a MedianSelection
+     * loaded by addAll on either kind of heap gives the same medians as one fed value by value, while it keeps streaming
+     */
+    @Test
+    public void testAddAll() {
+        Random random = new Random(23);
+        double[] values = new double[5001];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(1000);
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        HeapPriorityQueue listHeap = new HeapPriorityQueue(Comparator.reverseOrder(), values);
+        PrimitiveHeapPriorityQueue primitiveHeap = new PrimitiveHeapPriorityQueue(PrimitiveHeapPriorityQueue.Order.MIN, values);
+        PrimitiveHeapPriorityQueue wideHeap = new PrimitiveHeapPriorityQueue(PrimitiveHeapPriorityQueue.Order.MIN, 1, 8);
+        wideHeap.addAll(values, 0, values.length);
+        for (int i = 0; i < sorted.length; i++) {
+            assertEquals(sorted[sorted.length - 1 - i], listHeap.remove());
+            assertEquals(sorted[i], primitiveHeap.remove());
+            assertEquals(sorted[i], wideHeap.remove());
+        }
+
+        MedianSelection oneByOne = new MedianSelection(), bulk = new MedianSelection();
+        MedianSelection boxed = new MedianSelection(new HeapPriorityQueue(), new HeapPriorityQueue(Comparator.reverseOrder()));
+        for (double value : values) {
+            oneByOne.add(value);
+        }
+        bulk.addAll(values);
+        boxed.addAll(Arrays.stream(values));
+        assertEquals(oneByOne.getCount(), bulk.getCount());
+        assertEquals(oneByOne.getMedian(), bulk.getMedian());
+        assertEquals(oneByOne.getMedian(), boxed.getMedian());
+        for (int i = 0; i < 1000; i++) {
+            double value = random.nextInt(2000);
+            oneByOne.add(value);
+            bulk.add(value);
+            boxed.add(value);
+            assertEquals(oneByOne.getMedian(), bulk.getMedian());
+            assertEquals(oneByOne.getMedian(), boxed.getMedian());
+        }
+        double[] small = {-1, 5000, 3};
+        for (double value : small) {
+            oneByOne.add(value);
+        }
+        bulk.addAll(small);
+        assertEquals(oneByOne.getMedian(), bulk.getMedian());
+        assertEquals(oneByOne.getQuantile(0.9), bulk.getQuantile(0.9));
+        double[] large = new double[12_000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = random.nextGaussian() * 500;
+            oneByOne.add(large[i]);
+        }
+        bulk.addAll(large);
+        assertEquals(oneByOne.getMedian(), bulk.getMedian());
+        bulk.addAll(new double[0]);
+        assertEquals(oneByOne.getCount(), bulk.getCount());
+    }
+
+    /**
+     * Test that MedianSelection gives the same medians on primitive heaps and on list-based heaps
+     */
+    @Test
+    public void testMedianSelectionWithListBasedHeaps() {
+        MedianSelection primitive = new MedianSelection();
+        MedianSelection boxed = new MedianSelection(new HeapPriorityQueue(), new HeapPriorityQueue(Comparator.reverseOrder()));
+        double[] values = {3.0, 1.0, 4.0, 1.0, 5.0, 9.0, 2.0, 6.0};
+        for (double value : values) {
+            primitive.add(value);
+            boxed.add(value);
+            assertEquals(boxed.getMedian(), primitive.getMedian());
+        }
+        assertEquals(3.5, primitive.getMedian());
+    }
+
     /**
      * Test the add() and balance() methods of the MedianSelection class by adding elements and checking the size of the
      * min and max heaps
@@ -173,6 +394,364 @@ class MedianSelectionTest {
         assertTrue(Double.isNaN(medianSelection.getMedian()));
     }
 
+    /**
+     * Test SlidingWindowMedian with a count-based window against the median of a sorted copy of the window,
+     * on a stream with many duplicates
+     */
+    @Test
+    public void testSlidingWindowMedianByCount() {
+        Random random = new Random(42);
+        int windowSize = 30;
+        SlidingWindowMedian window = new SlidingWindowMedian(windowSize);
+        double[] stream = new double[2000];
+        for (int i = 0; i < stream.length; i++) {
+            stream[i] = random.nextInt(20);
+            window.add(stream[i]);
+            double[] expected = Arrays.copyOfRange(stream, Math.max(0, i + 1 - windowSize), i + 1);
+            Arrays.sort(expected);
+            int n = expected.length;
+            assertEquals(n, window.size());
+            assertEquals((expected[(n - 1) / 2] + expected[n / 2]) / 2, window.getMedian());
+        }
+    }
+
+    /**
+     * Test SlidingWindowMedian with a time-based window by checking that values older than the window are evicted
+     */
+    @Test
+    public void testSlidingWindowMedianByTime() {
+        SlidingWindowMedian window = new SlidingWindowMedian(Duration.ofMinutes(3));
+        window.add(0, 10.0);
+        window.add(60_000, 20.0);
+        window.add(120_000, 30.0);
+        assertEquals(20.0, window.getMedian());
+        window.add(180_000, 1.0);
+        assertEquals(3, window.size());
+        assertEquals(20.0, window.getMedian());
+        window.advanceTo(300_000);
+        assertEquals(1, window.size());
+        assertEquals(1.0, window.getMedian());
+        window.advanceTo(360_000);
+        assertThrows(IllegalArgumentException.class, window::getMedian);
+        assertThrows(IllegalArgumentException.class, () -> window.add(0, 5.0));
+        // A value without a timestamp cannot be placed in a time-based window
+        SlidingWindowMedian untimed = new SlidingWindowMedian(Duration.ofMinutes(3));
+        assertThrows(IllegalStateException.class, () -> untimed.add(5.0));
+        assertEquals(0, untimed.size());
+        // Timestamps near Long.MIN_VALUE must not overflow the start of the window and evict it
+        untimed.add(Long.MIN_VALUE, 5.0);
+        untimed.add(Long.MIN_VALUE + 1, 7.0);
+        assertEquals(2, untimed.size());
+        assertEquals(6.0, untimed.getMedian());
+    }
+
+    /**
+     * Test getQuantile() of the MedianSelection class against quantiles interpolated by hand
+     */
+    @Test
+    public void testGetQuantileForMedianSelection() {
+        MedianSelection medianSelection = new MedianSelection();
+        for (double value : new double[] {40.0, 10.0, 30.0, 20.0, 50.0}) {
+            medianSelection.add(value);
+        }
+        assertEquals(5, medianSelection.getCount());
+        assertEquals(0.0, medianSelection.getRankError());
+        assertEquals(10.0, medianSelection.getQuantile(0));
+        assertEquals(20.0, medianSelection.getQuantile(0.25));
+        assertEquals(30.0, medianSelection.getQuantile(0.5));
+        assertEquals(46.0, medianSelection.getQuantile(0.9), 1e-9);
+        assertEquals(50.0, medianSelection.getQuantile(1));
+        assertThrows(IllegalArgumentException.class, () -> medianSelection.getQuantile(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new MedianSelection().getQuantile(0.25));
+    }
+
+    /**
+     * Test QuantileSelection and MultiQuantileSelection by comparing the quantiles read from the heads of the heaps
+     * after every value of a stream with duplicates with the quantiles interpolated in the sorted values,
+     * and streamQuantiles() of the DataStreamHandle class on a canned response
+     * @throws IOException if the canned response cannot be parsed
+     */
+    @Test
+    public void testQuantileSelection() throws IOException {
+        double[] quantiles = {0, 0.05, 0.25, 0.5, 0.75, 0.95, 1};
+        MultiQuantileSelection multi = new MultiQuantileSelection(quantiles);
+        QuantileSelection p5 = new QuantileSelection(0.05, new HeapPriorityQueue(Comparator.reverseOrder()), new HeapPriorityQueue(Comparator.naturalOrder()));
+        Random random = new Random(5);
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            double value = random.nextInt(100);
+            values.add(value);
+            multi.add(value);
+            p5.add(value);
+            List<Double> sorted = new ArrayList<>(values);
+            Collections.sort(sorted);
+            double[] actual = multi.getQuantiles();
+            for (int j = 0; j < quantiles.length; j++) {
+                double rank = quantiles[j] * (sorted.size() - 1);
+                int lower = (int) rank, upper = Math.min(lower + 1, sorted.size() - 1);
+                double expected = sorted.get(lower) + (rank - lower) * (sorted.get(upper) - sorted.get(lower));
+                assertEquals(expected, actual[j], 1e-9);
+            }
+            assertEquals(actual[1], p5.getValue(), 1e-9);
+        }
+        assertEquals(500, multi.getCount());
+        assertEquals(multi.getQuantile(0.9), p5.getQuantile(0.9), 1e-9);
+
+        QuantileSelection left = new QuantileSelection(0.25), right = new QuantileSelection(0.25);
+        for (int i = 0; i < values.size(); i++) {
+            (i % 2 == 0 ? left : right).add(values.get(i));
+        }
+        left.merge(right);
+        assertEquals(multi.getQuantile(0.25), left.getValue(), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSelection(0.5).getValue());
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSelection(-0.1));
+        assertThrows(IllegalArgumentException.class, () -> multi.merge(new MultiQuantileSelection(0.5)));
+        // Quantiles in any order, repeated, are answered in the order given
+        MultiQuantileSelection unordered = new MultiQuantileSelection(0.95, 0.05, 0.95, 0.5);
+        for (double value : values) {
+            unordered.add(value);
+        }
+        double[] expected = multi.getQuantiles();
+        assertArrayEquals(new double[] {expected[5], expected[1], expected[5], expected[3]}, unordered.getQuantiles());
+        assertEquals(multi.getQuantile(0.9), unordered.getQuantile(0.9), 1e-9);
+
+        DataStreamHandle handle = new DataStreamHandle(handler -> new AlphaVantageStreamParser(new StringReader(PAYLOAD)).parse(handler));
+        Map<LocalDate, double[]> daily = handle.streamQuantiles(0.25, 0.5);
+        assertArrayEquals(new double[] {8.25, 8.5}, daily.get(LocalDate.of(2023, 3, 1)));
+        assertArrayEquals(new double[] {11.75, 12.5}, daily.get(LocalDate.of(2023, 3, 2)));
+    }
+
+    /**
+     * Test WeightedMedianSelection and IntroSelect.weightedMedian() with integer weights, including zero weights,
+     * against the median of the values repeated as many times as their weights, and streamVolumeWeightedMedian()
+     * of the DataStreamHandle class on a canned response
+     * @throws IOException if the canned response cannot be parsed
+     */
+    @Test
+    public void testWeightedMedian() throws IOException {
+        Random random = new Random(17);
+        WeightedMedianSelection selection = new WeightedMedianSelection(), left = new WeightedMedianSelection(), right = new WeightedMedianSelection();
+        int n = 2000;
+        double[] values = new double[n], weights = new double[n];
+        List<Double> repeated = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            values[i] = random.nextInt(200);
+            weights[i] = random.nextInt(6);
+            selection.add(values[i], weights[i]);
+            (i % 2 == 0 ? left : right).add(values[i], weights[i]);
+            for (int j = 0; j < weights[i]; j++) {
+                repeated.add(values[i]);
+            }
+            if (!repeated.isEmpty() && (i % 97 == 0 || i == n - 1)) {
+                double[] expanded = repeated.stream().mapToDouble(Double::doubleValue).toArray();
+                double expected = IntroSelect.median(expanded);
+                assertEquals(expected, selection.getMedian());
+                assertEquals(expected, IntroSelect.weightedMedian(Arrays.copyOf(values, i + 1), Arrays.copyOf(weights, i + 1), 0, i + 1));
+            }
+        }
+        assertEquals(repeated.size(), selection.getTotalWeight());
+        left.merge(right);
+        assertEquals(selection.getMedian(), left.getMedian());
+        assertEquals(2.5, IntroSelect.weightedMedian(new double[] {4, 1, 3, 2}, new double[] {1, 1, 1, 1}, 0, 4));
+        assertThrows(IllegalArgumentException.class, () -> IntroSelect.weightedMedian(new double[] {1}, new double[] {0}, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> selection.add(1, -1));
+        assertThrows(IllegalArgumentException.class, () -> new WeightedMedianSelection().getMedian());
+
+        DataStreamHandle handle = new DataStreamHandle(new DataSource() {
+            @Override
+            public void read(org.example.BarHandler handler) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void read(org.example.OhlcvHandler handler) throws IOException {
+                new AlphaVantageStreamParser(new StringReader(PAYLOAD)).parse(handler);
+            }
+        });
+        assertEquals(Map.of(LocalDate.of(2023, 3, 1), 8.0, LocalDate.of(2023, 3, 2), 12.875), handle.streamVolumeWeightedMedian());
+    }
+
+    /**
+     * Test that KllSketch is exact on short streams and stays within its rank error with bounded memory on long streams
+     */
+    @Test
+    public void testKllSketch() {
+        QuantileAccumulator small = new KllSketch();
+        MedianSelection exact = new MedianSelection();
+        for (double value : new double[] {3.0, 1.0, 4.0, 1.0, 5.0, 9.0}) {
+            small.add(value);
+            exact.add(value);
+        }
+        assertEquals(exact.getMedian(), small.getMedian());
+        assertEquals(exact.getQuantile(0.8), small.getQuantile(0.8));
+
+        KllSketch sketch = new KllSketch(200, new Random(7));
+        int n = 200_000;
+        List<Double> shuffled = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            shuffled.add((double) i);
+        }
+        Collections.shuffle(shuffled, new Random(7));
+        shuffled.forEach(sketch::add);
+        assertEquals(n, sketch.getCount());
+        assertTrue(sketch.getRetained() < 3 * sketch.getK() + 100);
+        for (double quantile : new double[] {0.05, 0.25, 0.5, 0.75, 0.95}) {
+            double rank = sketch.getQuantile(quantile) / (n - 1);
+            assertEquals(quantile, rank, 2 * sketch.getRankError());
+        }
+        assertEquals(0.0, sketch.getQuantile(0));
+        assertEquals(n - 1.0, sketch.getQuantile(1));
+        assertTrue(KllSketch.forRankError(0.01).getRankError() <= 0.01);
+    }
+
+    /**
+     * Test merge() of MedianSelection and KllSketch by merging states built over two halves of a stream
+     * and comparing them with the state of the whole stream
+     */
+    @Test
+    public void testMerge() {
+        Random random = new Random(11);
+        MedianSelection left = new MedianSelection(), right = new MedianSelection(), whole = new MedianSelection();
+        KllSketch leftSketch = new KllSketch(200, new Random(1)), rightSketch = new KllSketch(200, new Random(2));
+        int n = 100_000;
+        for (int i = 0; i < n; i++) {
+            double value = random.nextGaussian() * 10 + 100;
+            whole.add(value);
+            (i % 3 == 0 ? left : right).add(value);
+            (i % 3 == 0 ? leftSketch : rightSketch).add(value);
+        }
+        left.merge(right);
+        assertEquals(n, left.getCount());
+        assertEquals(whole.getMedian(), left.getMedian());
+        assertEquals(whole.getQuantile(0.95), left.getQuantile(0.95));
+
+        leftSketch.merge(rightSketch);
+        assertEquals(n, leftSketch.getCount());
+        assertTrue(leftSketch.getRetained() < 3 * leftSketch.getK() + 100);
+        for (double quantile : new double[] {0.05, 0.5, 0.95}) {
+            double estimate = leftSketch.getQuantile(quantile);
+            double low = whole.getQuantile(Math.max(0, quantile - 2 * leftSketch.getRankError()));
+            double high = whole.getQuantile(Math.min(1, quantile + 2 * leftSketch.getRankError()));
+            assertTrue(estimate >= low && estimate <= high);
+        }
+        assertThrows(IllegalArgumentException.class, () -> leftSketch.merge(new KllSketch(100)));
+    }
+
+    /**
+     * Test ConcurrentMedianSelection with several producer threads and a concurrent reader, checking that the counts
+     * read never decrease and that the final median is the one of the same values added by a single thread
+     * @throws Exception if a thread fails
+     */
+    @Test
+    public void testConcurrentMedianSelection() throws Exception {
+        int threads = 8, perThread = 50_000;
+        ConcurrentMedianSelection concurrent = new ConcurrentMedianSelection(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            List<Future<?>> producers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                producers.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < perThread; i++) {
+                        concurrent.add(random.nextGaussian());
+                    }
+                }));
+            }
+            Future<Long> reader = executor.submit(() -> {
+                long last = 0;
+                while (last < (long) threads * perThread) {
+                    long count = concurrent.getCount();
+                    assertTrue(count >= last);
+                    last = count;
+                }
+                return last;
+            });
+            for (Future<?> producer : producers) {
+                producer.get();
+            }
+            assertEquals((long) threads * perThread, reader.get());
+        } finally {
+            executor.shutdown();
+        }
+        MedianSelection expected = new MedianSelection();
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(t);
+            for (int i = 0; i < perThread; i++) {
+                expected.add(random.nextGaussian());
+            }
+        }
+        assertEquals(expected.getMedian(), concurrent.getMedian());
+        assertEquals(expected.getQuantile(0.9), concurrent.getQuantile(0.9));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentMedianSelection(0));
+    }
+
+    /**
+     * Test that producers sharing a single stripe with a reader holding the selection most of the time wait for it
+     * once their buffer is full, instead of deadlocking or losing values
+     * @throws Exception if a thread fails or does not finish in time
+     */
+    @Test
+    public void testConcurrentMedianSelectionBoundedBuffers() throws Exception {
+        int threads = 4, perThread = 20_000;
+        ConcurrentMedianSelection concurrent = new ConcurrentMedianSelection(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            List<Future<?>> producers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                producers.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        concurrent.add(i);
+                    }
+                }));
+            }
+            Future<?> reader = executor.submit(() -> {
+                while (concurrent.getCount() < (long) threads * perThread) {
+                    concurrent.getMedian();
+                }
+            });
+            for (Future<?> producer : producers) {
+                producer.get(60, TimeUnit.SECONDS);
+            }
+            reader.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals((long) threads * perThread, concurrent.getCount());
+        assertEquals((perThread - 1) / 2.0, concurrent.getMedian());
+    }
+
+    /**
+     * Test IntroSelect against a sorted copy on random, sorted, reverse-sorted, duplicate-heavy and constant arrays
+     */
+    @Test
+    public void testIntroSelect() {
+        Random random = new Random(3);
+        for (int n : new int[] {1, 2, 7, 16, 17, 100, 1001}) {
+            double[][] inputs = new double[5][n];
+            for (int i = 0; i < n; i++) {
+                inputs[0][i] = random.nextDouble();
+                inputs[1][i] = i;
+                inputs[2][i] = n - i;
+                inputs[3][i] = random.nextInt(3);
+                inputs[4][i] = 1.0;
+            }
+            for (double[] input : inputs) {
+                double[] sorted = input.clone();
+                Arrays.sort(sorted);
+                for (int k = 0; k < n; k += Math.max(1, n / 10)) {
+                    double[] copy = input.clone();
+                    assertEquals(sorted[k], IntroSelect.select(copy, 0, n, k));
+                    for (int i = 0; i < n; i++) {
+                        assertTrue(i < k ? copy[i] <= copy[k] : copy[i] >= copy[k]);
+                    }
+                }
+                assertEquals((sorted[(n - 1) / 2] + sorted[n / 2]) / 2, IntroSelect.median(input.clone()));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> IntroSelect.median(new double[0]));
+    }
+
     /**
      * Test the getUrl() method of the DataStreamHandle class by checking if the constructed url is correct
      */
@@ -219,6 +798,820 @@ class MedianSelectionTest {
         assertFalse(result.isEmpty());
     }
 
+    /**
+     * Test getMedian() with an executor by checking that the medians of many dates are computed concurrently
+     * and returned in ascending date order
+     */
+    @Test
+    void testGetMedianWithExecutor() {
+        Random random = new Random(5);
+        Map<LocalDate, List<Double>> dataMap = new HashMap<>();
+        Map<LocalDate, Double> expected = new HashMap<>();
+        for (int day = 0; day < 200; day++) {
+            List<Double> dataList = new ArrayList<>();
+            MedianSelection medianSelection = new MedianSelection();
+            for (int i = 0; i < 390; i++) {
+                double value = 100 + random.nextDouble();
+                dataList.add(value);
+                medianSelection.add(value);
+            }
+            dataMap.put(LocalDate.of(2023, 1, 1).plusDays(day), dataList);
+            expected.put(LocalDate.of(2023, 1, 1).plusDays(day), medianSelection.getMedian());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Map<LocalDate, Double> result = dataStreamHandle.getMedian(dataMap, executor);
+            assertEquals(expected, new HashMap<>(result));
+            assertEquals(new ArrayList<>(new TreeSet<>(dataMap.keySet())), new ArrayList<>(result.keySet()));
+        } finally {
+            executor.shutdown();
+        }
+        dataMap.put(LocalDate.of(2024, 1, 1), new ArrayList<>());
+        assertThrows(IllegalArgumentException.class, () -> dataStreamHandle.getMedian(dataMap, Runnable::run));
+    }
+
+    /**
+     * Test streamQuantile() of the DataStreamHandle class on a canned response, against transformData() on the same response
+     * @throws IOException if the response cannot be parsed
+     */
+    @Test
+    void testStreamQuantile() throws IOException {
+        Map<LocalDate, Double> result = dataStreamHandle.streamQuantile(new StringReader(PAYLOAD), 0.5, MedianSelection::new);
+        assertEquals(List.of(LocalDate.of(2023, 3, 1), LocalDate.of(2023, 3, 2)), new ArrayList<>(result.keySet()));
+        assertEquals(8.5, result.get(LocalDate.of(2023, 3, 1)));
+        assertEquals(12.5, result.get(LocalDate.of(2023, 3, 2)));
+        dataStreamHandle.transformData(new JSONObject(PAYLOAD)).forEach((date, dataList) -> {
+            MedianSelection medianSelection = new MedianSelection();
+            dataList.forEach(medianSelection::add);
+            assertEquals(medianSelection.getMedian(), result.get(date));
+        });
+    }
+
+    /**
+     * Test that AlphaVantageStreamParser reports API messages and malformed documents as IOException
+     */
+    @Test
+    void testStreamParserErrors() {
+        String note = "{\"Note\": \"API call frequency is 5 calls per minute\"}";
+        IOException exception = assertThrows(IOException.class, () -> new AlphaVantageStreamParser(new StringReader(note)).parse((minute, close) -> { }));
+        assertTrue(exception.getMessage().contains("API call frequency"));
+        String information = "{\"Information\": \"Premium endpoint\"}";
+        exception = assertThrows(IOException.class, () -> new AlphaVantageStreamParser(new StringReader(information)).parse((minute, close) -> { }));
+        assertTrue(exception.getMessage().contains("Premium endpoint"));
+        exception = assertThrows(IOException.class, () -> new AlphaVantageStreamParser(new StringReader("{}")).parse((minute, close) -> { }));
+        assertTrue(exception.getMessage().contains("No time series"));
+        String truncated = PAYLOAD.substring(0, PAYLOAD.length() / 2);
+        assertThrows(IOException.class, () -> new AlphaVantageStreamParser(new StringReader(truncated)).parse((minute, close) -> { }));
+        String noClose = "{\"Time Series (5min)\": {\"2023-03-01 15:00:00\": {\"1. open\": \"8.00\"}}}";
+        assertThrows(IOException.class, () -> new AlphaVantageStreamParser(new StringReader(noClose)).parse((minute, close) -> { }));
+    }
+
+    /**
+     * Test TokenBucket with a fake clock by checking the waits of reservations beyond the capacity
+     */
+    @Test
+    void testTokenBucket() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket tokenBucket = new TokenBucket(60, 2, now::get);
+        assertEquals(0, tokenBucket.reserve());
+        assertEquals(0, tokenBucket.reserve());
+        assertEquals(1_000_000_000L, tokenBucket.reserve());
+        assertEquals(2_000_000_000L, tokenBucket.reserve());
+        now.set(3_000_000_000L);
+        assertEquals(0, tokenBucket.reserve());
+        assertEquals(1_000_000_000L, tokenBucket.reserve());
+    }
+
+    /**
+     * Test SymbolFetchScheduler against a local stub of the API, with a symbol failing transiently
+     * and a symbol rejected by the API
+     * @throws IOException if the stub server cannot be started
+     */
+    @Test
+    void testSymbolFetchScheduler() throws IOException {
+        AtomicInteger flakyCalls = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/query", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            int status = 200;
+            String body = PAYLOAD;
+            if (query.contains("symbol=FLAKY") && flakyCalls.getAndIncrement() < 2) {
+                status = 503;
+                body = "";
+            } else if (query.contains("symbol=BAD")) {
+                body = "{\"Error Message\": \"Invalid API call.\"}";
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        });
+        server.start();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            SymbolFetchScheduler scheduler = new SymbolFetchScheduler("http://127.0.0.1:" + server.getAddress().getPort(), apiKey,
+                    DataStreamHandle.Interval.SIXTY_MIN, DataStreamHandle.OutputSize.COMPACT,
+                    new TokenBucket(6000), 3, Duration.ofMillis(10), executor);
+            SymbolFetchScheduler.Result result = scheduler.fetchMedians(List.of("IBM", "MSFT", "FLAKY", "BAD"));
+            assertEquals(Set.of("FLAKY", "IBM", "MSFT"), result.getMedians().keySet());
+            assertEquals(12.5, result.getMedians().get("FLAKY").get(LocalDate.of(2023, 3, 2)));
+            assertEquals(3, flakyCalls.get());
+            assertTrue(result.getFailures().get("BAD") instanceof IOException);
+        } finally {
+            executor.shutdownNow();
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test DataStreamHandle reading JSON and CSV files instead of calling the API
+     * @throws IOException if the files cannot be written or read
+     */
+    @Test
+    void testFileDataSource() throws IOException {
+        Path json = Files.createTempFile("series", ".json");
+        Path csv = Files.createTempFile("series", ".csv");
+        try {
+            Files.writeString(json, PAYLOAD);
+            Files.writeString(csv, "timestamp,open,high,low,close,volume\n"
+                    + "2023-03-02 11:00:00,10.0,13.0,9.0,12.50,100\n"
+                    + "2023-03-02 10:00:00,10.0,13.0,9.0,11.00,200\n"
+                    + "2023-03-02 09:00:00,10.0,13.0,9.0,13.25,300\n"
+                    + "2023-03-01 16:00:00,10.0,13.0,9.0,9.00,400\n"
+                    + "2023-03-01 15:00:00,10.0,13.0,9.0,8.00,500\n");
+            Map<LocalDate, Double> fromJson = new DataStreamHandle(new FileDataSource(json)).getMedian();
+            Map<LocalDate, Double> fromCsv = new DataStreamHandle(new FileDataSource(csv)).getMedian();
+            assertEquals(Map.of(LocalDate.of(2023, 3, 1), 8.5, LocalDate.of(2023, 3, 2), 12.5), fromJson);
+            assertEquals(fromJson, fromCsv);
+            Files.writeString(csv, "timestamp,open\n2023-03-02 11:00:00,10.0\n");
+            assertThrows(IOException.class, () -> new DataStreamHandle(new FileDataSource(csv)).getMedian());
+        } finally {
+            Files.delete(json);
+            Files.delete(csv);
+        }
+    }
+
+    /**
+     * Test getDailyStatistics() of the DataStreamHandle class on a CSV file against statistics computed by hand,
+     * and on a JSON file whose bars lack some fields
+     * @throws IOException if the files cannot be written or read
+     */
+    @Test
+    void testDailyOhlcvStatistics() throws IOException {
+        Path json = Files.createTempFile("series", ".json");
+        Path csv = Files.createTempFile("series", ".csv");
+        try {
+            Files.writeString(csv, "timestamp,open,high,low,close,volume\n"
+                    + "2023-03-02 10:00:00,10.0,12.0,9.0,11.00,100\n"
+                    + "2023-03-02 09:00:00,9.0,10.0,8.0,9.50,300\n"
+                    + "2023-03-01 16:00:00,8.0,9.0,7.0,8.50,100\n"
+                    + "2023-03-01 15:00:00,8.0,8.5,7.5,8.00,200\n"
+                    + "2023-03-01 14:00:00,7.0,8.0,6.0,7.00,100\n");
+            DailyOhlcvStatistics statistics = new DataStreamHandle(new FileDataSource(csv)).getDailyStatistics();
+            assertEquals(2, statistics.size());
+            assertEquals(LocalDate.of(2023, 3, 1), statistics.getDate(0));
+            assertEquals(8.0, statistics.getMedianClose(0));
+            assertEquals(8.0, statistics.getVolumeWeightedMedian(0));
+            assertEquals(2.0, statistics.getMedianTrueRange(0));
+            assertEquals(9.0, statistics.getHigh(0));
+            assertEquals(6.0, statistics.getLow(0));
+            int row = statistics.indexOf(LocalDate.of(2023, 3, 2));
+            assertEquals(1, row);
+            assertEquals(10.25, statistics.getMedianClose(row));
+            assertEquals(9.5, statistics.getVolumeWeightedMedian(row));
+            assertEquals(2.5, statistics.getMedianTrueRange(row));
+            assertEquals(12.0, statistics.getHigh(row));
+            assertEquals(8.0, statistics.getLow(row));
+            assertTrue(statistics.indexOf(LocalDate.of(2023, 3, 3)) < 0);
+
+            Files.writeString(json, PAYLOAD);
+            DailyOhlcvStatistics fromJson = new DataStreamHandle(new FileDataSource(json)).getDailyStatistics();
+            assertEquals(8.5, fromJson.getMedianClose(0));
+            assertEquals(8.0, fromJson.getVolumeWeightedMedian(0));
+            assertEquals(12.5, fromJson.getMedianClose(1));
+            assertEquals(12.875, fromJson.getVolumeWeightedMedian(1));
+            assertTrue(Double.isNaN(fromJson.getHigh(1)));
+            // Sources of close prices only hand NaN for the other fields, and wrapping sources pass all fields through
+            BarSeries closes = new BarSeries();
+            new FileDataSource(json).read(closes);
+            DailyOhlcvStatistics closesOnly = new DataStreamHandle(closes).getDailyStatistics();
+            assertEquals(8.5, closesOnly.getMedianClose(0));
+            assertTrue(Double.isNaN(closesOnly.getVolumeWeightedMedian(0)));
+            DailyOhlcvStatistics replayed = new DataStreamHandle(new ReplayDataSource(new FileDataSource(csv), Double.POSITIVE_INFINITY)).getDailyStatistics();
+            assertEquals(statistics.getVolumeWeightedMedian(row), replayed.getVolumeWeightedMedian(row));
+            // Whole bars are cached too, so a second read does not fetch them again
+            Path directory = Files.createTempDirectory("cache");
+            try {
+                AtomicInteger fetches = new AtomicInteger();
+                DataSource counted = new DataSource() {
+                    @Override
+                    public void read(BarHandler handler) throws IOException {
+                        fetches.incrementAndGet();
+                        new FileDataSource(csv).read(handler);
+                    }
+
+                    @Override
+                    public void read(OhlcvHandler handler) throws IOException {
+                        fetches.incrementAndGet();
+                        new FileDataSource(csv).read(handler);
+                    }
+                };
+                CachingDataSource cached = new CachingDataSource(new SeriesCache(directory, 1 << 20), "CSV", counted, null,
+                        Duration.ofMinutes(30), Clock.systemUTC());
+                assertEquals(statistics.getMedianTrueRange(row), new DataStreamHandle(cached).getDailyStatistics().getMedianTrueRange(row));
+                assertEquals(statistics.getVolumeWeightedMedian(row), new DataStreamHandle(cached).getDailyStatistics().getVolumeWeightedMedian(row));
+                assertEquals(statistics.getMedianClose(row), new DataStreamHandle(cached).streamMedian().get(statistics.getDate(row)));
+                assertEquals(1, fetches.get());
+            } finally {
+                try (var files = Files.list(directory)) {
+                    for (Path file : files.toList()) {
+                        Files.delete(file);
+                    }
+                }
+                Files.delete(directory);
+            }
+        } finally {
+            Files.delete(json);
+            Files.delete(csv);
+        }
+    }
+
+    /**
+     * Test ReplayDataSource by checking that recorded bars are replayed in chronological order,
+     * spaced by their recorded time divided by the speed-up
+     * @throws IOException if the bars cannot be read
+     */
+    @Test
+    void testReplayDataSource() throws IOException {
+        long start = EpochMinutes.of(LocalDateTime.of(2023, 3, 1, 9, 30));
+        BarSeries recorded = new BarSeries();
+        for (int i : new int[] {3, 9, 0, 5, 1, 8, 2, 7, 4, 6}) {
+            recorded.onBar(start + i, 100 + i);
+        }
+        BarSeries replayed = new BarSeries();
+        new ReplayDataSource(recorded, Double.POSITIVE_INFINITY).read(replayed);
+        assertEquals(10, replayed.size());
+        for (int i = 0; i < replayed.size(); i++) {
+            assertEquals(start + i, replayed.getEpochMinute(i));
+            assertEquals(100.0 + i, replayed.getClose(i));
+        }
+        // 9 minutes replayed 6000 times faster last 90 milliseconds
+        long begin = System.nanoTime();
+        new ReplayDataSource(recorded, 6000).read((epochMinute, close) -> { });
+        assertTrue(System.nanoTime() - begin >= 90_000_000L);
+
+        Map<LocalDateTime, Double> rolling = new DataStreamHandle(new ReplayDataSource(recorded, Double.POSITIVE_INFINITY)).getRollingMedian(3);
+        assertEquals(108.0, rolling.get(EpochMinutes.toLocalDateTime(start + 9)));
+        assertThrows(IllegalArgumentException.class, () -> new ReplayDataSource(recorded, 0));
+    }
+
+    /**
+     * Test CachingDataSource by checking that a fresh series is served from the cache, that a stale one is refreshed
+     * through the refresh source keeping the older cached bars, and that the least recently used files are evicted
+     * @throws IOException if the cache cannot be written
+     */
+    @Test
+    void testCachingDataSource() throws IOException {
+        Path directory = Files.createTempDirectory("cache");
+        try {
+            SeriesCache cache = new SeriesCache(directory, 1 << 20);
+            long day1 = EpochMinutes.of(LocalDateTime.of(2023, 3, 1, 10, 0));
+            long day2 = EpochMinutes.of(LocalDateTime.of(2023, 3, 2, 10, 0));
+            AtomicInteger fullCalls = new AtomicInteger(), refreshCalls = new AtomicInteger();
+            DataStreamHandle.Interval interval = DataStreamHandle.Interval.THIRTY_MIN;
+            String key = SeriesCache.key("IBM", interval, DataStreamHandle.OutputSize.FULL);
+            DataSource full = handler -> {
+                fullCalls.incrementAndGet();
+                handler.onBar(day2 + 30, 21.0);
+                handler.onBar(day2, 20.0);
+                handler.onBar(day1 + 30, 11.0);
+                handler.onBar(day1, 10.0);
+            };
+            DataSource refresh = handler -> {
+                refreshCalls.incrementAndGet();
+                handler.onBar(day2 + 60, 30.0);
+                handler.onBar(day2 + 30, 25.0);
+            };
+            Instant start = LocalDateTime.of(2023, 3, 2, 11, 0).toInstant(ZoneOffset.UTC);
+            for (long minutes : new long[] {0, 1, 31}) {
+                Clock clock = Clock.fixed(start.plusSeconds(minutes * 60), ZoneOffset.UTC);
+                DataStreamHandle handle = new DataStreamHandle(new CachingDataSource(cache, key, full, refresh, interval.toDuration(), clock));
+                Map<LocalDate, Double> medians = handle.streamMedian();
+                assertEquals(10.5, medians.get(LocalDate.of(2023, 3, 1)));
+                assertEquals(minutes < 30 ? 20.5 : 25.0, medians.get(LocalDate.of(2023, 3, 2)));
+            }
+            assertEquals(1, fullCalls.get());
+            assertEquals(1, refreshCalls.get());
+
+            // A cache older than the refresh window is fetched again in full instead of losing the bars in between
+            long day3 = EpochMinutes.of(LocalDateTime.of(2023, 3, 3, 10, 0));
+            String oldKey = SeriesCache.key("OLD", interval, DataStreamHandle.OutputSize.FULL);
+            BarSeries history = new BarSeries();
+            history.onBar(day1, 10.0);
+            DataSource growing = handler -> {
+                fullCalls.incrementAndGet();
+                history.read(handler);
+            };
+            DataSource window = handler -> handler.onBar(day3, 30.0);
+            Clock early = Clock.fixed(start, ZoneOffset.UTC), late = Clock.fixed(start.plusSeconds(86_400), ZoneOffset.UTC);
+            new CachingDataSource(cache, oldKey, growing, window, interval.toDuration(), early).read((epochMinute, close) -> { });
+            history.onBar(day2, 20.0);
+            history.onBar(day3, 30.0);
+            Map<LocalDate, Double> medians = new DataStreamHandle(new CachingDataSource(cache, oldKey, growing, window, interval.toDuration(), late)).streamMedian();
+            assertEquals(20.0, medians.get(LocalDate.of(2023, 3, 2)));
+            assertEquals(3, fullCalls.get());
+            assertEquals(3, cache.load(oldKey).getSeries().size());
+
+            // A fresh series cached with close prices only serves close prices, but whole bars are fetched in full
+            String closesKey = SeriesCache.key("CLOSES", interval, DataStreamHandle.OutputSize.FULL);
+            cache.store(closesKey, history, start.toEpochMilli());
+            CachingDataSource closesOnly = new CachingDataSource(cache, closesKey, growing, window, interval.toDuration(), early);
+            closesOnly.read((epochMinute, close) -> { });
+            assertEquals(3, fullCalls.get());
+            closesOnly.read((epochMinute, open, high, low, close, volume) -> { });
+            assertEquals(4, fullCalls.get());
+            assertTrue(cache.load(closesKey).getFile().hasAllFields());
+
+            SeriesCache small = new SeriesCache(directory, 200);
+            BarSeries series = new BarSeries();
+            for (int i = 0; i < 8; i++) {
+                series.onBar(day1 + i, i);
+            }
+            small.store("A", series, 0);
+            small.store("B", series, 0);
+            assertNull(small.load("A"));
+            assertEquals(8, small.load("B").getSeries().size());
+
+            // Temporary files of interrupted writes are deleted once stale
+            Path interrupted = Files.createFile(directory.resolve("A123.tmp"));
+            Path writing = Files.createFile(directory.resolve("B456.tmp"));
+            Files.setLastModifiedTime(interrupted, java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() - 3_600_000));
+            new SeriesCache(directory, 200);
+            assertFalse(Files.exists(interrupted));
+            assertTrue(Files.exists(writing));
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Test IncrementalMedianStore by refreshing from a growing source, checking that only new bars are applied,
+     * that earlier dates are frozen and that the medians match a computation from scratch
+     * @throws IOException if the source cannot be read
+     */
+    @Test
+    void testIncrementalMedianStore() throws IOException {
+        long day1 = EpochMinutes.of(LocalDateTime.of(2023, 3, 1, 9, 30));
+        long day2 = EpochMinutes.of(LocalDateTime.of(2023, 3, 2, 9, 30));
+        BarSeries source = new BarSeries();
+        for (int i = 0; i < 5; i++) {
+            source.onBar(day1 + i, 10 + i);
+        }
+        source.onBar(day2, 50);
+        IncrementalMedianStore store = new IncrementalMedianStore();
+        assertEquals(6, store.refresh(source));
+        assertEquals(0, store.refresh(source));
+        assertEquals(Map.of(LocalDate.of(2023, 3, 1), 12.0), store.getFrozenMedians());
+        assertEquals(1, store.getOpenDateCount());
+
+        source.onBar(day2 + 1, 60);
+        source.onBar(day2 + 2, 40);
+        assertEquals(2, store.refresh(source));
+        assertEquals(new DataStreamHandle(source).streamMedian(), store.getMedians());
+        assertEquals(50.0, store.getMedians().get(LocalDate.of(2023, 3, 2)));
+        assertThrows(IllegalArgumentException.class, () -> store.apply(day1, 1.0));
+
+        // The last bar is delivered again with a revised close, and a late bar of the open date arrives
+        assertEquals(1, store.refresh(handler -> handler.onBar(day2 + 2, 100)));
+        assertEquals(60.0, store.getMedians().get(LocalDate.of(2023, 3, 2)));
+        assertEquals(0, store.refresh(handler -> handler.onBar(day2 + 2, 100)));
+        assertTrue(store.apply(day2 - 5, 70));
+        assertEquals(65.0, store.getMedians().get(LocalDate.of(2023, 3, 2)));
+        assertEquals(Map.of(LocalDate.of(2023, 3, 1), 12.0), store.getFrozenMedians());
+    }
+
+    /**
+     * Test SeriesFile by writing a series with gaps and an out-of-order bar, reading it back bar for bar,
+     * and checking that the file takes about nine bytes per bar, that whole bars are read back with all their fields
+     * and that a truncated file is rejected
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    void testSeriesFile() throws IOException {
+        Path path = Files.createTempFile("series", ".bars");
+        try {
+            long start = EpochMinutes.of(LocalDateTime.of(2023, 3, 1, 4, 0));
+            BarSeries series = new BarSeries();
+            Random random = new Random(7);
+            for (int i = 0; i < 1000; i++) {
+                series.onBar(start + i + (i >= 500 ? 1000 : 0), 100 + random.nextGaussian());
+            }
+            series.onBar(start - 5, Double.NaN);
+            SeriesFile.write(path, series, 42);
+            assertTrue(Files.size(path) < 1001 * 9 + 64);
+
+            SeriesFile file = SeriesFile.open(path);
+            assertEquals(1001, file.size());
+            assertEquals(42, file.getTimestamp());
+            BarSeries read = file.toBarSeries();
+            for (int i = 0; i < series.size(); i++) {
+                assertEquals(series.getEpochMinute(i), read.getEpochMinute(i));
+                assertEquals(series.getClose(i), read.getClose(i));
+                assertEquals(series.getClose(i), file.getClose(i));
+            }
+            assertEquals(1001, file.closes().remaining());
+
+            assertFalse(file.hasAllFields());
+            OhlcvSeries nanFields = file.toOhlcvSeries();
+            assertEquals(series.getClose(3), nanFields.closes()[3]);
+            assertTrue(Double.isNaN(nanFields.volumes()[3]));
+
+            // All the fields of the bars take one more column each
+            OhlcvSeries bars = new OhlcvSeries();
+            for (int i = 0; i < 100; i++) {
+                bars.onBar(start + i, 10 + i, 12 + i, 9 + i, 11 + i, i % 3 == 0 ? Double.NaN : 1000 * i);
+            }
+            SeriesFile.write(path, bars, 43);
+            assertTrue(Files.size(path) < 32 + 100 * 5 * 8 + 100 + 10);
+            SeriesFile ohlcv = SeriesFile.open(path);
+            assertTrue(ohlcv.hasAllFields());
+            assertEquals(43, ohlcv.getTimestamp());
+            OhlcvSeries readBars = ohlcv.toOhlcvSeries();
+            for (int i = 0; i < bars.size(); i++) {
+                assertEquals(bars.epochMinutes()[i], readBars.epochMinutes()[i]);
+                assertEquals(bars.opens()[i], readBars.opens()[i]);
+                assertEquals(bars.highs()[i], readBars.highs()[i]);
+                assertEquals(bars.lows()[i], readBars.lows()[i]);
+                assertEquals(bars.closes()[i], readBars.closes()[i]);
+                assertEquals(bars.volumes()[i], readBars.volumes()[i]);
+            }
+            assertEquals(bars.closes()[7], ohlcv.toBarSeries().getClose(7));
+
+            byte[] bytes = Files.readAllBytes(path);
+            Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+            assertThrows(IOException.class, () -> SeriesFile.open(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Test the metrics by installing a LongAdderMetricsRegistry, reading its counters directly and through JMX
+     * after parsing a canned response, and checking that nothing is counted once the metrics are disabled again
+     * @throws Exception if the registry cannot be registered or read through JMX
+     */
+    @Test
+    void testMetrics() throws Exception {
+        LongAdderMetricsRegistry registry = new LongAdderMetricsRegistry();
+        ObjectName name = new ObjectName(LongAdderMetricsRegistry.OBJECT_NAME);
+        Metrics.setRegistry(registry);
+        registry.registerMBean();
+        try {
+            assertTrue(Metrics.isEnabled());
+            dataStreamHandle.streamQuantile(new StringReader(PAYLOAD), 0.5, MedianSelection::new);
+            assertEquals(5, registry.get(MetricKey.BARS_PARSED));
+            assertEquals(PAYLOAD.length(), registry.get(MetricKey.BYTES_READ));
+            assertTrue(registry.get(MetricKey.PARSE_NANOS) > 0);
+            assertEquals(2, registry.get(MetricKey.MEDIANS_COMPUTED));
+
+            MedianSelection medianSelection = new MedianSelection();
+            for (int i = 0; i < 1000; i++) {
+                medianSelection.add(1000 - i);
+            }
+            assertTrue(registry.get(MetricKey.SIFT_UP_STEPS) > 0);
+            assertTrue(registry.get(MetricKey.SIFT_DOWN_STEPS) > 0);
+            assertTrue(registry.get(MetricKey.REBALANCE_MOVES) > 0);
+            assertTrue(registry.get(MetricKey.ARRAY_GROWTHS) > 0);
+            assertEquals(registry.get(MetricKey.BARS_PARSED), ManagementFactory.getPlatformMBeanServer().getAttribute(name, "BARS_PARSED"));
+            ManagementFactory.getPlatformMBeanServer().invoke(name, "reset", null, null);
+            assertEquals(0, registry.get(MetricKey.BARS_PARSED));
+            assertThrows(ReflectionException.class, () -> ManagementFactory.getPlatformMBeanServer().invoke(name, "explode", null, null));
+        } finally {
+            Metrics.setRegistry(MetricsRegistry.NOOP);
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+        assertFalse(Metrics.isEnabled());
+        dataStreamHandle.streamQuantile(new StringReader(PAYLOAD), 0.5, MedianSelection::new);
+        assertEquals(0, registry.get(MetricKey.BARS_PARSED));
+    }
+
+    /**
+     * Test EpochMinutes.parse() and DecimalParser.parse() against LocalDateTime.parse() and Double.parseDouble()
+     * on random and edge inputs, including the inputs both reject
+     */
+    @Test
+    void testFastParsers() {
+        Random random = new Random(21);
+        for (int i = 0; i < 10_000; i++) {
+            String timestamp = String.format("%04d-%02d-%02d %02d:%02d:%02d", 1 + random.nextInt(9999), 1 + random.nextInt(12),
+                    1 + random.nextInt(31), random.nextInt(24), random.nextInt(60), random.nextInt(60));
+            assertEquals(EpochMinutes.of(LocalDateTime.parse(timestamp, EpochMinutes.TIMESTAMP_FORMATTER)),
+                    EpochMinutes.parse(timestamp), timestamp);
+            String price = String.format("%." + random.nextInt(8) + "f", random.nextDouble() * Math.pow(10, random.nextInt(12)));
+            if (random.nextBoolean()) {
+                price = "-" + price;
+            }
+            assertEquals(Double.parseDouble(price), DecimalParser.parse(price), price);
+        }
+        for (String timestamp : new String[]{"2024-02-29 23:59:59", "2023-02-30 10:00:00", "2023-12-31 24:00:00",
+                "0001-01-01 00:00:00", "1969-12-31 23:59:00", "9999-12-31 23:59:59"}) {
+            assertEquals(EpochMinutes.of(LocalDateTime.parse(timestamp, EpochMinutes.TIMESTAMP_FORMATTER)),
+                    EpochMinutes.parse(timestamp), timestamp);
+        }
+        for (String timestamp : new String[]{"2023-03-32 10:00:00", "0000-01-01 00:00:00", "2023-3-01 10:00:00",
+                "2023-03-01T10:00:00", "2023-03-01 10:00:60", "2023-03-01 10:00", ""}) {
+            assertThrows(DateTimeParseException.class, () -> EpochMinutes.parse(timestamp));
+        }
+        for (String price : new String[]{"0", "-0.0", "+1.5", "130.4500", ".5", "5.", "9007199254740993",
+                "0.1000000000000000000000001", "123456789012345678901", "1e3", "NaN", "-Infinity"}) {
+            assertEquals(Double.parseDouble(price), DecimalParser.parse(price), price);
+        }
+        for (String price : new String[]{"", "-", ".", "1.2.3", "12a", "1,5"}) {
+            assertThrows(NumberFormatException.class, () -> DecimalParser.parse(price));
+        }
+    }
+
+    /**
+     * Test MedianPublisher by checking that subscribers are notified only when a median changes or a date is finalized
+     */
+    @Test
+    void testMedianPublisher() throws IOException {
+        List<String> received = new ArrayList<>();
+        AtomicInteger completed = new AtomicInteger();
+        long day = EpochMinutes.of(LocalDateTime.of(2023, 3, 1, 10, 0));
+        BarSeries bars = new BarSeries();
+        MedianPublisher publisher = new MedianPublisher(bars, Runnable::run, 4);
+        publisher.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(MedianPublisher.Update update) {
+                received.add(update.toString());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                received.add("error " + throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completed.incrementAndGet();
+            }
+        });
+        assertEquals(1, publisher.getSubscriberCount());
+        bars.onBar(day, 10);
+        assertEquals(1, publisher.poll());
+        bars.onBar(day + 30, 10);
+        assertEquals(0, publisher.poll());
+        assertEquals(0, publisher.poll());
+        bars.onBar(day + 60, 20);
+        bars.onBar(day + 90, 40);
+        assertEquals(1, publisher.poll());
+        publisher.onBar(day + EpochMinutes.MINUTES_PER_DAY, 5);
+        publisher.onBar(day, 100);
+        assertEquals(List.of("2023-03-01=10.0", "2023-03-01=15.0", "2023-03-01=15.0 (final)", "2023-03-02=5.0"), received);
+        assertEquals(Map.of(LocalDate.of(2023, 3, 1), 15.0, LocalDate.of(2023, 3, 2), 5.0), publisher.getMedians());
+        publisher.close();
+        assertEquals(1, completed.get());
+        assertThrows(IllegalArgumentException.class, () -> new MedianPublisher(bars, Runnable::run, 0));
+    }
+
+    /**
+     * Test the update() method of the DrawChart class by checking that a batch fires one change event,
+     * that a long series is down-sampled while keeping its extremes, and that later points are drawn
+     * without down-sampling the history again until there are too many
+     */
+    @Test
+    void testChartUpdate() throws Exception {
+        DrawChart drawChart = new DrawChart(symbolName, Map.of(LocalDate.of(2023, 3, 1), 10.0), "Test Title", "Test X Label", "Test Y Label");
+        TimeSeries timeSeries = ((TimeSeriesCollection) drawChart.getChart().getXYPlot().getDataset()).getSeries(0);
+        AtomicInteger events = new AtomicInteger();
+        timeSeries.addChangeListener(event -> events.incrementAndGet());
+        Map<LocalDate, Double> batch = new TreeMap<>();
+        for (int i = 0; i < 20; i++) {
+            batch.put(LocalDate.of(2023, 3, 1).plusDays(i), 20.0 + i);
+        }
+        drawChart.update(batch);
+        assertEquals(1, events.get());
+        assertEquals(20, timeSeries.getItemCount());
+        assertEquals(20.0, timeSeries.getValue(0).doubleValue());
+
+        Map<LocalDate, Double> history = new TreeMap<>();
+        for (int i = 0; i < 1000; i++) {
+            history.put(LocalDate.of(2020, 1, 1).plusDays(i), i == 500 ? 1000.0 : Math.sin(i / 50.0));
+        }
+        drawChart.setMaxPoints(100);
+        drawChart.update(history);
+        assertEquals(3, events.get());
+        // Down-sampled to half the points, leaving room for the next ones
+        assertEquals(50, timeSeries.getItemCount());
+        assertEquals(1000.0, timeSeries.getMaxY());
+        assertEquals(LocalDate.of(2020, 1, 1).toEpochDay(), timeSeries.getTimePeriod(0).getStart().getTime() / 86_400_000, 1);
+        Number kept = timeSeries.getValue(1);
+        drawChart.update(Map.of(LocalDate.of(2023, 3, 21), 30.0));
+        drawChart.update(Map.of(LocalDate.of(2023, 3, 21), 31.0, history.keySet().iterator().next(), history.values().iterator().next()));
+        assertEquals(5, events.get());
+        assertEquals(51, timeSeries.getItemCount());
+        assertEquals(31.0, timeSeries.getValue(50).doubleValue());
+        assertEquals(kept, timeSeries.getValue(1));
+        // A changed point of the history, or too many points, down-sample again
+        drawChart.update(Map.of(LocalDate.of(2021, 1, 1), -1000.0));
+        assertEquals(50, timeSeries.getItemCount());
+        assertEquals(-1000.0, timeSeries.getMinY());
+        Map<LocalDate, Double> later = new TreeMap<>();
+        for (int i = 0; i < 60; i++) {
+            later.put(LocalDate.of(2023, 4, 1).plusDays(i), (double) i);
+        }
+        drawChart.update(later);
+        assertTrue(timeSeries.getItemCount() <= 100);
+
+        // Updates pushed by a publisher are applied on the event dispatch thread
+        MedianPublisher publisher = new MedianPublisher(null, Runnable::run, 4);
+        drawChart.subscribe(publisher);
+        publisher.onBar(EpochMinutes.of(LocalDateTime.of(2030, 1, 1, 10, 0)), 2000);
+        javax.swing.SwingUtilities.invokeAndWait(() -> { });
+        assertEquals(2000.0, timeSeries.getMaxY());
+
+        double[] x = {0, 1, 2, 3, 4, 5, 6}, y = {0, 0, 9, 0, 0, -9, 0};
+        assertArrayEquals(new int[]{0, 2, 5, 6}, Downsampling.largestTriangleThreeBuckets(x, y, 7, 4));
+        assertArrayEquals(new int[]{0, 1, 2}, Downsampling.largestTriangleThreeBuckets(x, y, 3, 4));
+        assertThrows(IllegalArgumentException.class, () -> Downsampling.largestTriangleThreeBuckets(x, y, 7, 2));
+        // A peak on the point before the last one is kept even when the buckets do not divide the points evenly
+        for (int[] sizes : new int[][] {{1000, 7}, {1003, 103}, {100_000, 1_001}, {10, 9}}) {
+            int size = sizes[0], threshold = sizes[1];
+            double[] xs = new double[size], ys = new double[size];
+            for (int i = 0; i < size; i++) {
+                xs[i] = i;
+            }
+            ys[size - 2] = 1;
+            int[] indices = Downsampling.largestTriangleThreeBuckets(xs, ys, size, threshold);
+            assertEquals(threshold, indices.length);
+            assertEquals(size - 2, indices[threshold - 2]);
+            for (int i = 1; i < threshold; i++) {
+                assertTrue(indices[i] > indices[i - 1]);
+            }
+        }
+    }
+
+    /**
+     * Test ChartBatchRenderer by saving the charts of many series concurrently to PNG and SVG files
+     */
+    @Test
+    void testChartBatchRenderer() throws IOException {
+        Map<String, Map<LocalDate, Double>> series = new TreeMap<>();
+        for (int s = 0; s < 8; s++) {
+            Map<LocalDate, Double> data = new TreeMap<>();
+            for (int i = 0; i < 2000; i++) {
+                data.put(LocalDate.of(2020, 1, 1).plusDays(i), 100 + s + Math.sin(i / 30.0));
+            }
+            series.put("SYM" + s, data);
+        }
+        Path directory = Files.createTempDirectory("charts");
+        ExecutorService workers = Executors.newFixedThreadPool(3);
+        try {
+            ChartBatchRenderer.Result png = new ChartBatchRenderer(directory, DrawChart.Format.PNG, 400, 200, "Date", "Price").render(series, workers);
+            assertEquals(series.keySet(), png.getFiles().keySet());
+            assertTrue(png.getFailures().isEmpty());
+            assertTrue(png.getChartsPerSecond() > 0);
+            for (Path file : png.getFiles().values()) {
+                byte[] bytes = Files.readAllBytes(file);
+                assertArrayEquals(new byte[]{(byte) 0x89, 'P', 'N', 'G'}, Arrays.copyOf(bytes, 4));
+            }
+            ChartBatchRenderer.Result svg = new ChartBatchRenderer(directory, DrawChart.Format.SVG, 400, 200, "Date", "Price").render(series, workers);
+            assertEquals(series.keySet(), svg.getFiles().keySet());
+            assertTrue(svg.getFailures().isEmpty());
+            assertTrue(Files.readString(svg.getFiles().get("SYM0")).contains("<svg"));
+        } finally {
+            workers.shutdown();
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ChartBatchRenderer(directory, DrawChart.Format.PNG, 0, 200, "Date", "Price"));
+    }
+
+    /**
+     * Test RollupEngine by comparing the medians and quantiles of every resolution with those of the bars grouped by bucket
+     */
+    @Test
+    void testRollupEngine() throws IOException {
+        Random random = new Random(25);
+        BarSeries bars = new BarSeries();
+        long start = EpochMinutes.of(LocalDateTime.of(2023, 1, 27, 9, 30));
+        for (int i = 0; i < 3000; i++) {
+            bars.onBar(start + 30L * i, 100 + random.nextGaussian());
+        }
+        DataStreamHandle handle = new DataStreamHandle(bars);
+        RollupEngine<MedianSelection> engine = handle.getRollup(MedianSelection::new);
+        assertRollup(engine, bars);
+        // Bars added later only rebuild the buckets above their hours
+        for (int i = 0; i < 100; i++) {
+            long epochMinute = start + random.nextInt(3000 * 30);
+            double close = 100 + random.nextGaussian();
+            bars.onBar(epochMinute, close);
+            engine.onBar(epochMinute, close);
+        }
+        assertRollup(engine, bars);
+        assertEquals(LocalDateTime.of(2023, 1, 23, 0, 0), engine.getMedians(RollupEngine.Resolution.WEEK).keySet().iterator().next());
+        assertEquals(LocalDateTime.of(2023, 1, 1, 0, 0), engine.getMedians(RollupEngine.Resolution.MONTH).keySet().iterator().next());
+        assertThrows(IllegalArgumentException.class, () -> engine.getQuantiles(RollupEngine.Resolution.DAY, 1.5));
+    }
+
+    /**
+     * Check the medians and quartiles of every resolution of a RollupEngine against the bars grouped by bucket
+     * @param engine the engine
+     * @param bars the bars added to the engine
+     */
+    private void assertRollup(RollupEngine<MedianSelection> engine, BarSeries bars) {
+        for (RollupEngine.Resolution resolution : RollupEngine.Resolution.values()) {
+            Map<LocalDateTime, List<Double>> groups = new TreeMap<>();
+            for (int i = 0; i < bars.size(); i++) {
+                groups.computeIfAbsent(EpochMinutes.toLocalDateTime(resolution.bucketOf(bars.getEpochMinute(i))), bucket -> new ArrayList<>())
+                        .add(bars.getClose(i));
+            }
+            Map<LocalDateTime, Double> medians = engine.getMedians(resolution);
+            Map<LocalDateTime, Double> quartiles = engine.getQuantiles(resolution, 0.25);
+            assertEquals(groups.keySet(), medians.keySet());
+            groups.forEach((bucket, closes) -> {
+                double[] values = closes.stream().mapToDouble(Double::doubleValue).toArray();
+                assertEquals(IntroSelect.quantile(values.clone(), 0, values.length, 0.5), medians.get(bucket), 1e-12);
+                assertEquals(IntroSelect.quantile(values.clone(), 0, values.length, 0.25), quartiles.get(bucket), 1e-12);
+            });
+        }
+    }
+
+    /**
+     * Test publishMedians() of the DataStreamHandle class by checking that the full series is read once and then
+     * polled by compact calls, and that polling goes on after a poll throws
+     * @throws Exception if the stub server cannot be started or the test is interrupted
+     */
+    @Test
+    void testPublishMedians() throws Exception {
+        List<String> outputSizes = Collections.synchronizedList(new ArrayList<>());
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/query", exchange -> {
+            outputSizes.add(exchange.getRequestURI().getQuery().contains("outputsize=full") ? "full" : "compact");
+            byte[] bytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        });
+        server.start();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        CountDownLatch received = new CountDownLatch(1);
+        try {
+            DataStreamHandle handle = new DataStreamHandle("http://127.0.0.1:" + server.getAddress().getPort(), apiKey, symbolName,
+                    DataStreamHandle.Interval.SIXTY_MIN, DataStreamHandle.OutputSize.FULL);
+            try (MedianPublisher publisher = handle.publishMedians(scheduler, new Flow.Subscriber<MedianPublisher.Update>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(MedianPublisher.Update update) {
+                    received.countDown();
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            })) {
+                assertTrue(received.await(10, TimeUnit.SECONDS));
+                assertEquals(0, publisher.poll());
+                assertEquals(List.of("full", "compact"), outputSizes);
+            }
+
+            AtomicInteger polls = new AtomicInteger();
+            MedianPublisher failing = new MedianPublisher(handler -> {
+                polls.incrementAndGet();
+                throw new IllegalStateException("Broken source");
+            }, Runnable::run, 4);
+            failing.start(scheduler, Duration.ofMillis(1));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (polls.get() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            failing.close();
+            assertTrue(polls.get() >= 3);
+        } finally {
+            scheduler.shutdownNow();
+            server.stop(0);
+        }
+    }
+
     /**
      * Test validate() method of the DataStreamHandle class by checking whether an exception is thrown
      */
@@ -0,0 +1,30 @@
+package org.example.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks of this module with the GC profiler, so that every result reports its allocation rate.
+ * Command-line arguments are the usual JMH ones, e.g. a regular expression selecting benchmarks.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Run the benchmarks
+     * @param args JMH command-line options
+     * @throws RunnerException if a benchmark fails
+     * @throws CommandLineOptionException if the options are illegal
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
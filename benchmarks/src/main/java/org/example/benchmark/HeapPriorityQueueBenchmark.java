@@ -0,0 +1,70 @@
+package org.example.benchmark;
+
+import org.example.DoublePriorityQueue;
+import org.example.HeapPriorityQueue;
+import org.example.PrimitiveHeapPriorityQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of add followed by remove on the list-based heap and on the primitive heaps of arity 2, 4 and 8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeapPriorityQueueBenchmark {
+
+    /**
+     * Number of elements added then removed per invocation
+     */
+    private static final int SIZE = 10_000;
+
+    /**
+     * The heap implementation
+     */
+    @Param({"list", "primitive", "primitive4", "primitive8"})
+    public String heap;
+
+    private double[] values;
+
+    private DoublePriorityQueue queue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        values = Streams.generate(Streams.Distribution.RANDOM, SIZE);
+        queue = switch (heap) {
+            case "list" -> new HeapPriorityQueue();
+            case "primitive4" -> new PrimitiveHeapPriorityQueue(PrimitiveHeapPriorityQueue.Order.MIN, 16, 4);
+            case "primitive8" -> new PrimitiveHeapPriorityQueue(PrimitiveHeapPriorityQueue.Order.MIN, 16, 8);
+            default -> new PrimitiveHeapPriorityQueue();
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * SIZE)
+    public void addRemove(Blackhole blackhole) {
+        for (double value : values) {
+            queue.add(value);
+        }
+        while (!queue.isEmpty()) {
+            blackhole.consume(queue.remove());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.benchmark;
+
+import org.example.MedianSelection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of MedianSelection.add followed by getMedian under several stream shapes, and of loading them in bulk
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MedianSelectionBenchmark {
+
+    /**
+     * Number of values streamed per invocation
+     */
+    private static final int SIZE = 10_000;
+
+    /**
+     * The shape of the stream
+     */
+    @Param({"SORTED", "REVERSE_SORTED", "RANDOM", "DUPLICATES"})
+    public Streams.Distribution distribution;
+
+    private double[] values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        values = Streams.generate(distribution, SIZE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void addAndGetMedian(Blackhole blackhole) {
+        MedianSelection medianSelection = new MedianSelection();
+        for (double value : values) {
+            medianSelection.add(value);
+            blackhole.consume(medianSelection.getMedian());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double addAll() {
+        MedianSelection medianSelection = new MedianSelection();
+        medianSelection.addAll(values);
+        return medianSelection.getMedian();
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.benchmark;
+
+import org.example.DataStreamHandle;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Canned inputs for the benchmarks, generated from a fixed seed
+ */
+public final class Streams {
+
+    /**
+     * The shape of a stream of values
+     */
+    public enum Distribution {
+        SORTED,
+        REVERSE_SORTED,
+        RANDOM,
+        DUPLICATES
+    }
+
+    private Streams() {
+    }
+
+    /**
+     * Generate a stream of values
+     * @param distribution the shape of the stream
+     * @param size the number of values
+     * @return the values
+     */
+    static double[] generate(Distribution distribution, int size) {
+        Random random = new Random(42);
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            switch (distribution) {
+                case SORTED -> values[i] = i;
+                case REVERSE_SORTED -> values[i] = size - i;
+                case RANDOM -> values[i] = random.nextDouble() * 1000;
+                case DUPLICATES -> values[i] = random.nextInt(16);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Generate an intraday time series payload shaped like the responses of the Alpha Vantage API,
+     * with a 390-minute trading day of bars going back from the most recent one
+     * @param interval the interval between two bars
+     * @param bars the number of bars
+     * @return the JSON payload
+     */
+    static String alphaVantagePayload(DataStreamHandle.Interval interval, int bars) {
+        Random random = new Random(42);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        int minutes = Integer.parseInt(interval.toString().replace("min", ""));
+        StringBuilder json = new StringBuilder(bars * 160);
+        json.append("{\"Meta Data\": {\"1. Information\": \"Intraday (").append(interval)
+                .append(") open, high, low, close prices and volume\", \"2. Symbol\": \"IBM\"}, ");
+        json.append("\"Time Series (").append(interval).append(")\": {");
+        int barsPerDay = 390 / minutes;
+        LocalDateTime day = LocalDateTime.of(2023, 3, 31, 9, 30);
+        double price = 130;
+        for (int i = 0; i < bars; i++) {
+            LocalDateTime time = day.minusDays(i / barsPerDay).plusMinutes((long) (barsPerDay - 1 - i % barsPerDay) * minutes);
+            price += random.nextGaussian() * 0.1;
+            if (i > 0) {
+                json.append(", ");
+            }
+            json.append('"').append(formatter.format(time)).append("\": {")
+                    .append(field("1. open", price)).append(", ")
+                    .append(field("2. high", price + 0.05)).append(", ")
+                    .append(field("3. low", price - 0.05)).append(", ")
+                    .append(field("4. close", price)).append(", ")
+                    .append("\"5. volume\": \"").append(1000 + random.nextInt(5000)).append("\"}");
+        }
+        return json.append("}}").toString();
+    }
+
+    private static String field(String name, double value) {
+        return "\"" + name + "\": \"" + String.format(Locale.ROOT, "%.4f", value) + "\"";
+    }
+}
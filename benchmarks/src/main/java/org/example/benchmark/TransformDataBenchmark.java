@@ -0,0 +1,55 @@
+package org.example.benchmark;
+
+import org.example.DataStreamHandle;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to parse a canned Alpha Vantage payload and transform it with DataStreamHandle.transformData
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformDataBenchmark {
+
+    /**
+     * The size of the payload: 100 bars for compact, 30 days of 1-minute bars for full
+     */
+    @Param({"COMPACT", "FULL"})
+    public DataStreamHandle.OutputSize outputSize;
+
+    private String payload;
+
+    private DataStreamHandle dataStreamHandle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int bars = outputSize == DataStreamHandle.OutputSize.COMPACT ? 100 : 30 * 390;
+        payload = Streams.alphaVantagePayload(DataStreamHandle.Interval.ONE_MIN, bars);
+        dataStreamHandle = new DataStreamHandle("demo", "IBM", DataStreamHandle.Interval.ONE_MIN, outputSize);
+    }
+
+    @Benchmark
+    public Map<LocalDate, List<Double>> parseAndTransform() {
+        return dataStreamHandle.transformData(new JSONObject(payload));
+    }
+}